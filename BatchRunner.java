@@ -0,0 +1,303 @@
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+/**
+ * The BatchRunner class solves a range of numbered deals on every core at
+ * once and adds up how they went: how many can be won, how long the
+ * solutions are and how many positions were searched. The range is split
+ * among the threads of a ForkJoinPool, which steal work from each other,
+ * and each thread reuses one Solver for all of its deals. Results for
+ * single deals are handed to a Sink as they are found rather than kept,
+ * so memory use doesn't grow with the number of deals. Before a deal is
+ * searched, an UnwinnabilityProver tries to prove it can't be won, and
+ * deals it proves are counted as lost without searching them.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class BatchRunner
+{
+    /**
+     * The Sink interface receives the result of each deal. It is called
+     * from many threads at once.
+     */
+    public interface Sink
+    {
+        /**
+         * Receives the result of one deal.
+         * @param deal the number of the deal
+         * @param status Solver.WON, Solver.LOST or Solver.UNKNOWN
+         * @param solutionLength the number of moves in the solution, or 0
+         * @param nodes the number of positions searched
+         */
+        void accept(long deal, int status, int solutionLength, long nodes);
+    }
+
+    /**
+     * Constants
+     */
+    private static final int GRAIN = 16; //deals solved by one task without splitting it
+    private static final int TABLE_BITS = 20; //size of each thread's transposition table
+
+    /**
+     * Instance variables
+     */
+    private final ForkJoinPool pool; //stores the worker threads
+    private final ThreadLocal<Worker> workers; //stores the Solver, prover and GameState of each worker thread
+    private final LongAdder done; //stores the number of deals solved
+    private final LongAdder[] counts; //stores the number of deals with each status
+    private final LongAdder moves; //stores the total length of the solutions
+    private final LongAdder passes; //stores the total number of stock passes in the solutions
+    private final LongAdder nodes; //stores the number of positions searched
+    private final LongAdder proven; //stores the number of deals proven lost without searching
+    private final LongAdder reached; //stores the total of the most foundation cards reached in deals searched but not won
+    private Sink sink; //stores where the result of each deal goes, or null
+
+    /**
+     * Constructor with parameters; initializes instance variables.
+     * @param threads the number of worker threads
+     * @param nodeLimit the most positions searched for one deal
+     * @param timeLimitMillis the most milliseconds spent on one deal
+     */
+    public BatchRunner(int threads, final long nodeLimit, final long timeLimitMillis)
+    {
+        pool = new ForkJoinPool(threads);
+        workers = new ThreadLocal<Worker>() {
+            protected Worker initialValue()
+            {
+                return new Worker(new Solver(nodeLimit, timeLimitMillis, TABLE_BITS));
+            }
+        };
+        done = new LongAdder();
+        counts = new LongAdder[] { new LongAdder(), new LongAdder(), new LongAdder() };
+        moves = new LongAdder();
+        passes = new LongAdder();
+        nodes = new LongAdder();
+        proven = new LongAdder();
+        reached = new LongAdder();
+    }
+
+    /**
+     * Solves a range of deals and prints a summary.
+     * @param args the number of deals, optionally followed by the number
+     *             of threads, the node limit per deal and a file to write
+     *             the result of each deal to
+     * @postcondition the deals have been solved and the summary printed.
+     * @throws IOException if the results file can't be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        long deals = args.length>0 ? Long.parseLong(args[0]) : 1000;
+        int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long nodeLimit = args.length>2 ? Long.parseLong(args[2]) : 200000;
+        BatchRunner runner = new BatchRunner(threads, nodeLimit, 10000);
+        if(args.length>3)
+        {
+            final PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(args[3])));
+            runner.run(0, deals, new Sink() {
+                public synchronized void accept(long deal, int status, int solutionLength, long nodes)
+                {
+                    out.println(deal + "," + status + "," + solutionLength + "," + nodes);
+                }
+            }, System.out);
+            out.close();
+        }
+        else
+        {
+            runner.run(0, deals, null, System.out);
+        }
+        System.out.println(runner.summary());
+        runner.shutdown();
+    }
+
+    /**
+     * Solves the deals numbered first to first + count - 1.
+     * @param first the number of the first deal
+     * @param count the number of deals
+     * @param resultSink where the result of each deal goes, or null
+     * @param progress where to print progress once a second, or null
+     * @postcondition every deal has been solved and its result added to
+     *                the totals and passed to the sink.
+     */
+    public void run(long first, long count, Sink resultSink, PrintStream progress)
+    {
+        sink = resultSink;
+        long begin = System.nanoTime();
+        ForkJoinTask<Void> task = pool.submit(new DealRange(first, first + count));
+        while(true)
+        {
+            try
+            {
+                task.get(1, TimeUnit.SECONDS);
+                return;
+            }
+            catch(TimeoutException e)
+            {
+                if(progress!=null)
+                {
+                    double seconds = (System.nanoTime() - begin) / 1e9;
+                    long solved = done.sum();
+                    progress.println(solved + "/" + count + " deals, "
+                                     + (long)(solved / seconds) + " deals/s, "
+                                     + (long)(nodes.sum() / seconds) + " nodes/s");
+                }
+            }
+            catch(InterruptedException e)
+            {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch(ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of deals solved with the given status.
+     * @param status Solver.WON, Solver.LOST or Solver.UNKNOWN
+     * @return the number of deals.
+     */
+    public long getCount(int status)
+    {
+        return counts[status].sum();
+    }
+
+    /**
+     * Gets the number of positions searched over all deals.
+     * @return the number of nodes searched.
+     */
+    public long getNodes()
+    {
+        return nodes.sum();
+    }
+
+    /**
+     * Gets the number of deals proven unwinnable without searching them.
+     * @return the number of deals the prover proved lost.
+     */
+    public long getProven()
+    {
+        return proven.sum();
+    }
+
+    /**
+     * Describes the totals so far.
+     * @return the win rate, the average solution length and stock passes
+     *         per solution, the average number of positions searched per
+     *         deal, how many deals were proven lost without searching, and
+     *         how close the search came on the deals it didn't win.
+     */
+    public String summary()
+    {
+        long total = done.sum();
+        long won = getCount(Solver.WON);
+        long notWon = total - won - getProven();
+        return "Deals: " + total + "  Won: " + won + "  Lost: " + getCount(Solver.LOST)
+               + "  Unknown: " + getCount(Solver.UNKNOWN) + "  Proven lost without searching: " + getProven()
+               + "\nWin rate: " + (total==0 ? 0 : 100.0 * won / total) + "%"
+               + "\nAverage solution length: " + (won==0 ? 0 : (double)moves.sum() / won)
+               + "\nAverage stock passes per solution: " + (won==0 ? 0 : (double)passes.sum() / won)
+               + "\nAverage nodes per deal: " + (total==0 ? 0 : nodes.sum() / total)
+               + "\nAverage foundation cards reached in deals searched but not won: "
+               + (notWon==0 ? 0 : (double)reached.sum() / notWon);
+    }
+
+    /**
+     * Stops the worker threads.
+     * @postcondition the pool has been shut down.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Solves one deal on the current thread.
+     * @param deal the number of the deal
+     * @postcondition the result has been added to the totals and passed to the sink.
+     */
+    private void solve(long deal)
+    {
+        Worker worker = workers.get();
+        Solver solver = worker.solver;
+        Deals.deal(deal, worker.state);
+        if(worker.prover.isUnwinnable(worker.state))
+        {
+            proven.increment();
+            counts[Solver.LOST].increment();
+            done.increment();
+            if(sink!=null)
+            {
+                sink.accept(deal, Solver.LOST, 0, 0);
+            }
+            return;
+        }
+        int status = solver.solve(worker.state);
+        counts[status].increment();
+        if(status!=Solver.WON)
+        {
+            reached.add(solver.getMostFoundationCards());
+        }
+        moves.add(solver.getSolutionLength());
+        passes.add(solver.getSolutionStockPasses());
+        nodes.add(solver.getNodes());
+        done.increment();
+        if(sink!=null)
+        {
+            sink.accept(deal, status, solver.getSolutionLength(), solver.getNodes());
+        }
+    }
+
+    /**
+     * The Worker class holds what one worker thread reuses for every deal.
+     */
+    private static class Worker
+    {
+        private final Solver solver; //stores the thread's Solver
+        private final UnwinnabilityProver prover; //stores the thread's prover
+        private final GameState state; //stores the deal being solved
+
+        Worker(Solver initSolver)
+        {
+            solver = initSolver;
+            prover = new UnwinnabilityProver();
+            state = new GameState();
+        }
+    }
+
+    /**
+     * The DealRange class is a task that solves a range of deals, splitting
+     * itself in half until the pieces are small.
+     */
+    private class DealRange extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L; //ForkJoinTask is Serializable
+
+        private final long from; //stores the first deal of the range
+        private final long to; //stores the deal after the last one of the range
+
+        DealRange(long initFrom, long initTo)
+        {
+            from = initFrom;
+            to = initTo;
+        }
+
+        protected void compute()
+        {
+            if(to - from<=GRAIN)
+            {
+                for(long deal = from; deal<to; deal++)
+                {
+                    solve(deal);
+                }
+            }
+            else
+            {
+                long middle = from + (to - from) / 2;
+                invokeAll(new DealRange(from, middle), new DealRange(middle, to));
+            }
+        }
+    }
+}
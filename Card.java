@@ -1,29 +1,81 @@
-
 /**
  * The Card class defines a playing card and the methods an object
- * of the Card class can use.
+ * of the Card class can use. There are exactly 52 Card objects, one for
+ * each card in the deck, shared by every game; a Card never changes, and
+ * whether it is face up is kept by the pile it is in.
  * @author Russell Yang
  * @version 11/9/17
  */
-public class Card
+public final class Card
 {
+    /**
+     * Constants
+     */
+    public static final int CLUBS = 0;
+    public static final int DIAMONDS = 1;
+    public static final int HEARTS = 2;
+    public static final int SPADES = 3;
+    public static final String BACK_FILE_NAME = "cards/back.gif"; //file name of the back of a card
+    private static final String SUITS = "cdhs"; //letter for each suit
+    private static final String RANKS = "a23456789tjqk"; //letter for each rank
+    private static final Card[] CARDS = new Card[52]; //stores every card by its code
+
+    static
+    {
+        for(int suit = CLUBS; suit<=SPADES; suit++)
+        {
+            for(int rank = 1; rank<=13; rank++)
+            {
+                Card c = new Card(rank, suit);
+                CARDS[c.getCode()] = c;
+            }
+        }
+    }
+
     /**
      * Instance variables
      */
-    private int rank; //stores the rank of a card
-    private String suit; //stores the suit of a card
-    private boolean isFaceUp; //stores whether the card is face up
+    private final int rank; //stores the rank of a card
+    private final int suit; //stores the suit of a card
+    private final int code; //stores the card's code, suit * 13 + rank - 1
+    private final boolean isRed; //stores whether the card is red
+    private final String imageKey; //stores the name of the card's image, such as "ac"
+    private final String fileName; //stores the file name of the card's image
 
     /**
      * Constructor with parameters; initializes instance variables.
      * @param initRank an initial rank of a card
      * @param initSuit an initial suit of a card
      */
-    public Card(int initRank, String initSuit)
+    private Card(int initRank, int initSuit)
     {
         rank = initRank;
         suit = initSuit;
-        isFaceUp = false;
+        code = suit * 13 + rank - 1;
+        isRed = suit==DIAMONDS || suit==HEARTS;
+        imageKey = "" + RANKS.charAt(rank - 1) + SUITS.charAt(suit);
+        fileName = "cards/" + imageKey + ".gif";
+    }
+
+    /**
+     * Gets the card with the given rank and suit.
+     * @param rank a rank between 1 and 13
+     * @param suit a suit between CLUBS and SPADES
+     * @return the Card with the given rank and suit.
+     */
+    public static Card get(int rank, int suit)
+    {
+        return CARDS[suit * 13 + rank - 1];
+    }
+
+    /**
+     * Gets the card with the given code.
+     * @param code a card code between 0 and 51
+     * @return the Card with the given code.
+     */
+    public static Card fromCode(int code)
+    {
+        return CARDS[code];
     }
 
     /**
@@ -35,17 +87,27 @@ public class Card
     {
         return rank;
     }
-    
+
     /**
      * Gets the suit of the card.
      * @postcondition the suit of the card is returned.
-     * @return the suit of the card.
+     * @return the suit of the card, between CLUBS and SPADES.
      */
-    public String getSuit()
+    public int getSuit()
     {
         return suit;
     }
-    
+
+    /**
+     * Gets the code of the card, as used by GameState.
+     * @postcondition the code of the card is returned.
+     * @return the code of the card, between 0 and 51.
+     */
+    public int getCode()
+    {
+        return code;
+    }
+
     /**
      * Checks whether the card is red.
      * @postcondition true is returned if the card is a diamond
@@ -54,78 +116,26 @@ public class Card
      */
     public boolean isRed()
     {
-        return(suit.equals("d") || suit.equals("h"));
-    }
-    
-    /**
-     * Checks if the card is face up.
-     * @postcondition true is returned if the card is face up, false otherwise.
-     * @return true if the card is face up, false otherwise.
-     */
-    public boolean isFaceUp()
-    {
-        return isFaceUp;
-    }
-    
-    /**
-     * Turns the card to face up.
-     * @postcondition isFaceUp is set to true.
-     */
-    public void turnUp()
-    {
-        isFaceUp = true;
+        return isRed;
     }
-    
+
     /**
-     * Turns the card to face down.
-     * @postcondition isFaceUp is set to false.
+     * Gets the name of the card's image, such as "ac" for the ace of clubs.
+     * @postcondition the image key of the card is returned.
+     * @return the image key of the card.
      */
-    public void turnDown()
+    public String getImageKey()
     {
-        isFaceUp = false;
+        return imageKey;
     }
-    
+
     /**
-     * Gets the file name of a card.
+     * Gets the file name of the face of a card.
      * @postcondition the file name of a card is returned.
      * @return the file name of the card.
      */
     public String getFileName()
     {
-        String firstPart = "cards\\";
-        String lastPart = ".gif";
-        if(!isFaceUp)
-        {
-            return firstPart + "back" + lastPart;
-        }
-        else
-        {
-            String middlePart = getSuit();
-            if(rank==1)
-            {
-                middlePart = "a" + middlePart;
-            }
-            else if(rank==10)
-            {
-                middlePart = "t" + middlePart;
-            }
-            else if(rank==11)
-            {
-                middlePart = "j" + middlePart;
-            }
-            else if(rank==12)
-            {
-                middlePart = "q" + middlePart;
-            }
-            else if(rank==13)
-            {
-                middlePart = "k" + middlePart;
-            }
-            else
-            {
-                middlePart = getRank() + middlePart;
-            }
-            return firstPart + middlePart + lastPart;
-        }
+        return fileName;
     }
 }
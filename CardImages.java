@@ -0,0 +1,149 @@
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.net.*;
+import javax.imageio.*;
+/**
+ * The CardImages class loads the image of every card, and of the back of
+ * a card, once, scales them to the size they are drawn at and packs them
+ * into one sprite sheet. Drawing a card is then a copy out of the sheet,
+ * with no file access and no new objects.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class CardImages
+{
+    /**
+     * Constants
+     */
+    public static final int BACK = 52; //index of the back of a card, after the 52 card codes
+    private static final int COLUMNS = 13; //one row of the sheet per suit, then the back
+
+    private static CardImages instance; //stores the images once they are loaded
+
+    /**
+     * Instance variables
+     */
+    private final BufferedImage sheet; //stores every image side by side
+    private final int width; //stores the width of one image
+    private final int height; //stores the height of one image
+
+    /**
+     * Gets the card images, loading them the first time.
+     * @param width the width cards are drawn at
+     * @param height the height cards are drawn at
+     * @postcondition the images have been loaded at the given size if
+     *                they weren't already.
+     * @return the card images.
+     */
+    public static synchronized CardImages get(int width, int height)
+    {
+        if(instance==null || instance.width!=width || instance.height!=height)
+        {
+            instance = new CardImages(width, height);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor with parameters; loads all of the images into the sheet.
+     * @param initWidth the width cards are drawn at
+     * @param initHeight the height cards are drawn at
+     */
+    private CardImages(int initWidth, int initHeight)
+    {
+        long begin = System.nanoTime();
+        Telemetry.ImageLoadEvent event = new Telemetry.ImageLoadEvent();
+        event.begin();
+        width = initWidth;
+        height = initHeight;
+        sheet = new BufferedImage(width * COLUMNS, height * 5, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for(int i = 0; i<=BACK; i++)
+        {
+            String fileName;
+            if(i==BACK)
+            {
+                fileName = Card.BACK_FILE_NAME;
+            }
+            else
+            {
+                fileName = Card.fromCode(i).getFileName();
+            }
+            g.drawImage(read(fileName), x(i), y(i), width, height, null);
+        }
+        g.dispose();
+        event.width = width;
+        event.height = height;
+        event.commit();
+        Telemetry.record(Metrics.IMAGE_LOAD, System.nanoTime() - begin);
+    }
+
+    /**
+     * Draws an image.
+     * @param g the Graphics to draw on
+     * @param index a card code, or BACK
+     * @param x the x coordinate to draw at
+     * @param y the y coordinate to draw at
+     * @postcondition the image has been drawn with its top left corner at (x, y).
+     */
+    public void draw(Graphics g, int index, int x, int y)
+    {
+        int sx = x(index);
+        int sy = y(index);
+        g.drawImage(sheet, x, y, x + width, y + height, sx, sy, sx + width, sy + height, null);
+    }
+
+    /**
+     * Gets the x coordinate of an image in the sheet.
+     * @param index a card code, or BACK
+     * @return the x coordinate of the image.
+     */
+    private int x(int index)
+    {
+        return index % COLUMNS * width;
+    }
+
+    /**
+     * Gets the y coordinate of an image in the sheet.
+     * @param index a card code, or BACK
+     * @return the y coordinate of the image.
+     */
+    private int y(int index)
+    {
+        return index / COLUMNS * height;
+    }
+
+    /**
+     * Reads an image from the classpath, or from the working directory if
+     * it isn't on the classpath.
+     * @param fileName the file name of an image, such as "cards/ac.gif"
+     * @return the image.
+     */
+    private static BufferedImage read(String fileName)
+    {
+        try
+        {
+            URL url = CardImages.class.getResource("/" + fileName);
+            BufferedImage image;
+            if(url!=null)
+            {
+                image = ImageIO.read(url);
+            }
+            else
+            {
+                image = ImageIO.read(new File(fileName));
+            }
+            if(image==null)
+            {
+                throw new IllegalArgumentException("bad file name:  " + fileName);
+            }
+            return image;
+        }
+        catch(IOException e)
+        {
+            throw new IllegalArgumentException("bad file name:  " + fileName, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.*;
+/**
+ * The Deals class turns a 64 bit deal number into a shuffled deck, so that
+ * any game can be dealt again exactly from its number. The deck is
+ * shuffled in place with a Fisher-Yates shuffle driven by a
+ * SplittableRandom seeded with the deal number, which takes one pass over
+ * the deck and shares no random number generator between threads.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class Deals
+{
+    //stores a deck for each thread to shuffle, so that dealing makes no arrays
+    private static final ThreadLocal<byte[]> DECKS = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue()
+        {
+            return new byte[52];
+        }
+    };
+
+    /**
+     * Picks a deal number at random.
+     * @return a random deal number.
+     */
+    public static long randomDealNumber()
+    {
+        return java.util.concurrent.ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Shuffles a deck.
+     * @param dealNumber the number of the deal
+     * @param deck an array of 52 bytes
+     * @postcondition the deck holds the 52 card codes in the order given
+     *                by the deal number.
+     */
+    public static void shuffle(long dealNumber, byte[] deck)
+    {
+        for(int i = 0; i<52; i++)
+        {
+            deck[i] = (byte)i;
+        }
+        SplittableRandom random = new SplittableRandom(dealNumber);
+        for(int i = 51; i>0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            byte card = deck[i];
+            deck[i] = deck[j];
+            deck[j] = card;
+        }
+    }
+
+    /**
+     * Deals a numbered game.
+     * @param dealNumber the number of the deal
+     * @param state the GameState to deal into
+     * @postcondition the state holds the freshly dealt game with the given number.
+     */
+    public static void deal(long dealNumber, GameState state)
+    {
+        byte[] deck = DECKS.get();
+        shuffle(dealNumber, deck);
+        state.deal(deck);
+    }
+}
@@ -0,0 +1,341 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+/**
+ * The GameActor class lets any number of threads drive one game at once:
+ * a window, a bot and a replay, say. The game belongs to a thread of its
+ * own, and every change to it is a command sent to that thread's queue,
+ * so the game itself needs no locking. Commands that arrive together
+ * are handled together, and after each batch the actor publishes a
+ * GameView of the game, which other threads read without ever waiting
+ * for the game's thread. Sending a command only adds it to a lock-free
+ * queue, waking the game's thread if it was parked for want of work.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class GameActor
+{
+    /**
+     * Commands other than moves, which are sent as Moves ints
+     */
+    public static final int VIEW = -2; //changes nothing
+    public static final int UNDO = -3;
+    public static final int REDO = -4;
+    public static final int AUTO_PLAY = -5;
+    public static final int CLICK_STOCK = -6;
+    public static final int CLICK_WASTE = -7;
+    private static final int CLICK_FOUNDATION = -10; //minus the foundation index
+    private static final int CLICK_PILE = -20; //minus the pile index
+
+    /**
+     * Constants
+     */
+    private static final int BATCH = 64; //most commands handled before a view is published
+
+    /**
+     * The Listener interface hears about each view the actor publishes.
+     */
+    public interface Listener
+    {
+        /**
+         * Called on the game's thread after each batch of commands. No
+         * commands are handled while it runs, so it should only hand the
+         * view on.
+         * @param view the new view
+         */
+        void viewChanged(GameView view);
+    }
+
+    /**
+     * Instance variables
+     */
+    private final Solitaire game; //stores the game, used only on the game's thread
+    private final Listener listener; //stores who hears about new views, or null
+    private final ConcurrentLinkedQueue<Command> queue; //stores the commands waiting
+    private final ArrayList<Command> waiting; //stores the handled commands of this batch waiting for its view
+    private final Thread owner; //stores the game's thread
+    private volatile GameView view; //stores the view published last
+    private volatile boolean parked; //stores whether the game's thread is parked or about to be
+    private volatile boolean stopping; //stores whether shutdown has been called
+    private long handled; //stores the number of commands handled
+
+    /**
+     * Constructor with parameters; starts the game's thread.
+     * @param initGame the game, which must only be changed through the actor from now on
+     * @param initListener who hears about new views, or null
+     */
+    public GameActor(Solitaire initGame, Listener initListener)
+    {
+        game = initGame;
+        listener = initListener;
+        queue = new ConcurrentLinkedQueue<Command>();
+        waiting = new ArrayList<Command>();
+        view = new GameView(game, 0);
+        owner = new Thread("game " + game.getDealNumber()) {
+            public void run()
+            {
+                serve();
+            }
+        };
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * Makes the command for clicking a foundation.
+     * @param index the index of the foundation
+     * @return the command.
+     */
+    public static int clickFoundation(int index)
+    {
+        return CLICK_FOUNDATION - index;
+    }
+
+    /**
+     * Makes the command for clicking a pile.
+     * @param index the index of the pile
+     * @return the command.
+     */
+    public static int clickPile(int index)
+    {
+        return CLICK_PILE - index;
+    }
+
+    /**
+     * Carries out a command on a game.
+     * @param game the game
+     * @param command a move, or one of the other commands
+     * @postcondition the move has been made if it was legal, or the other
+     *                command carried out.
+     * @throws IllegalArgumentException if the command isn't a move or one
+     *         of the other commands
+     */
+    public static void perform(Solitaire game, int command)
+    {
+        if(command>=0)
+        {
+            game.play(command);
+        }
+        else if(command==UNDO)
+        {
+            game.undo();
+        }
+        else if(command==REDO)
+        {
+            game.redo();
+        }
+        else if(command==AUTO_PLAY)
+        {
+            game.autoPlay();
+        }
+        else if(command==CLICK_STOCK)
+        {
+            game.stockClicked();
+        }
+        else if(command==CLICK_WASTE)
+        {
+            game.wasteClicked();
+        }
+        else if(command<=CLICK_PILE && command>CLICK_PILE - 7)
+        {
+            game.pileClicked(CLICK_PILE - command);
+        }
+        else if(command<=CLICK_FOUNDATION && command>CLICK_FOUNDATION - 4)
+        {
+            game.foundationClicked(CLICK_FOUNDATION - command);
+        }
+        else if(command!=VIEW)
+        {
+            throw new IllegalArgumentException("bad command " + command);
+        }
+    }
+
+    /**
+     * Sends a command without waiting to hear how it went.
+     * @param command a move, or one of the other commands
+     * @postcondition the command will be handled, unless the actor has been
+     *                shut down; a bad command is reported on System.err.
+     */
+    public void send(int command)
+    {
+        enqueue(new Command(command, null));
+    }
+
+    /**
+     * Sends a command.
+     * @param command a move, or one of the other commands
+     * @return the view published after the batch the command was handled
+     *         in, once it has been; it fails if the command is bad or the
+     *         actor has been shut down.
+     */
+    public CompletableFuture<GameView> submit(int command)
+    {
+        CompletableFuture<GameView> reply = new CompletableFuture<GameView>();
+        enqueue(new Command(command, reply));
+        return reply;
+    }
+
+    /**
+     * Gets the view published last. It never waits for the game's thread.
+     * @return the latest view.
+     */
+    public GameView getView()
+    {
+        return view;
+    }
+
+    /**
+     * Handles the commands already sent and stops the game's thread.
+     * @postcondition the thread has stopped, unless the caller was
+     *                interrupted while waiting for it, and commands sent
+     *                from now on are dropped, their replies failing.
+     */
+    public void shutdown()
+    {
+        stopping = true;
+        LockSupport.unpark(owner);
+        try
+        {
+            owner.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds a command to the queue, waking the game's thread if it is parked.
+     * @param command the command
+     */
+    private void enqueue(Command command)
+    {
+        if(stopping)
+        {
+            refuse(command);
+            return;
+        }
+        queue.add(command);
+        //shutdown may have begun since the check above, so the game's
+        //thread may have made its last drain of the queue already; the
+        //command is refused by whichever of the two takes it back out
+        if(stopping)
+        {
+            if(queue.remove(command))
+            {
+                refuse(command);
+            }
+            return;
+        }
+        //the game's thread sets parked before its last look at the queue,
+        //so either it sees this command or this sees that it is parked
+        if(parked)
+        {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    /**
+     * Fails the reply of a command that won't be handled.
+     * @param command the command
+     */
+    private static void refuse(Command command)
+    {
+        if(command.reply!=null)
+        {
+            command.reply.completeExceptionally(new IllegalStateException("game actor is shut down"));
+        }
+    }
+
+    /**
+     * Runs on the game's thread: handles commands in batches, publishing a
+     * view after each, and parks while there are none. Once shutdown has
+     * been called and the queue is empty, commands that still come in are
+     * refused.
+     * @postcondition shutdown has been called and the queue is empty.
+     */
+    private void serve()
+    {
+        while(true)
+        {
+            Command command = queue.poll();
+            if(command==null)
+            {
+                if(stopping)
+                {
+                    for(Command left = queue.poll(); left!=null; left = queue.poll())
+                    {
+                        refuse(left);
+                    }
+                    return;
+                }
+                parked = true;
+                if(queue.isEmpty() && !stopping)
+                {
+                    LockSupport.park(this);
+                }
+                parked = false;
+                continue;
+            }
+            for(int count = 1; command!=null; count++)
+            {
+                handle(command);
+                command = count<BATCH ? queue.poll() : null;
+            }
+            view = new GameView(game, handled);
+            for(Command done : waiting)
+            {
+                done.reply.complete(view);
+            }
+            waiting.clear();
+            if(listener!=null)
+            {
+                listener.viewChanged(view);
+            }
+        }
+    }
+
+    /**
+     * Carries out one command, keeping it to be answered with the batch's
+     * view if it wants a reply.
+     * @param command the command
+     */
+    private void handle(Command command)
+    {
+        handled++;
+        try
+        {
+            perform(game, command.command);
+            if(command.reply!=null)
+            {
+                waiting.add(command);
+            }
+        }
+        catch(RuntimeException e)
+        {
+            if(command.reply!=null)
+            {
+                command.reply.completeExceptionally(e);
+            }
+            else
+            {
+                System.err.println("game command failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The Command class is a command waiting for the game, with where its reply goes.
+     */
+    private static class Command
+    {
+        private final int command; //stores the move or other command
+        private final CompletableFuture<GameView> reply; //stores where the reply goes, or null
+
+        Command(int initCommand, CompletableFuture<GameView> initReply)
+        {
+            command = initCommand;
+            reply = initReply;
+        }
+    }
+}
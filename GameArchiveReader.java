@@ -0,0 +1,237 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+/**
+ * The GameArchiveReader class reads the games in an archive written by
+ * GameArchiveWriter. The file is mapped into memory a large window at a
+ * time rather than read through a stream, and the games are gone through
+ * one after another without making objects for them: next moves on to
+ * the next game, and its moves can be copied into an array or made
+ * straight away on a GameState.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class GameArchiveReader implements Closeable
+{
+    /**
+     * Constants
+     */
+    private static final long WINDOW_SIZE = 1L << 30; //most bytes mapped at once
+
+    /**
+     * Instance variables
+     */
+    private final FileChannel channel; //stores the archive file
+    private final long fileSize; //stores the length of the file
+    private MappedByteBuffer window; //stores the part of the file mapped into memory
+    private long windowStart; //stores where in the file the window begins
+    private long recordStart; //stores where in the file the current game's record begins
+    private long nextRecord; //stores where in the file the next game's record begins
+    private int movesStart; //stores where in the window the current game's moves begin
+    private int movesEnd; //stores where in the window the current game's record ends
+    private long dealNumber; //stores the deal number of the current game
+    private int moveCount; //stores the number of moves in the current game
+
+    /**
+     * Constructor with parameters; opens an archive.
+     * @param path the archive file
+     * @throws IOException if the file can't be opened or isn't an archive
+     */
+    public GameArchiveReader(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        nextRecord = GameArchiveWriter.HEADER_SIZE;
+        if(fileSize<GameArchiveWriter.HEADER_SIZE)
+        {
+            channel.close();
+            throw new IOException("not a game archive: " + path);
+        }
+        map(0);
+        if(window.getInt()!=GameArchiveWriter.MAGIC || window.get()!=GameArchiveWriter.VERSION)
+        {
+            channel.close();
+            throw new IOException("not a game archive: " + path);
+        }
+        moveCount = -1;
+    }
+
+    /**
+     * Replays every game in an archive and prints how fast it went.
+     * @param args the archive file
+     * @postcondition the number of games, moves and wins and the rate have been printed.
+     * @throws IOException if the archive can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        GameArchiveReader reader = new GameArchiveReader(Paths.get(args[0]));
+        GameState state = new GameState();
+        long games = 0;
+        long moves = 0;
+        long wins = 0;
+        long begin = System.nanoTime();
+        while(reader.next())
+        {
+            reader.replay(state);
+            games++;
+            moves += reader.getMoveCount();
+            if(state.isWon())
+            {
+                wins++;
+            }
+        }
+        reader.close();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println("Games: " + games + "  Moves: " + moves + "  Wins: " + wins);
+        System.out.println("Moves per second: " + (long)(moves / seconds));
+    }
+
+    /**
+     * Moves on to the next game in the archive.
+     * @postcondition the next game is the current game, if there is one.
+     * @return true if there was another game, false at the end of the archive.
+     * @throws IOException if the archive is cut short, the record is
+     *         damaged or the file can't be read
+     */
+    public boolean next() throws IOException
+    {
+        if(nextRecord>=fileSize)
+        {
+            return false;
+        }
+        recordStart = nextRecord;
+        if(recordStart + 5>windowStart + window.limit() && windowStart + window.limit()<fileSize)
+        {
+            map(recordStart);
+        }
+        window.position((int)(recordStart - windowStart));
+        int length = getVarint(window.limit());
+        long bodyStart = windowStart + window.position();
+        if(length<9 || length>fileSize - bodyStart)
+        {
+            throw new IOException("archive is cut short at byte " + recordStart);
+        }
+        nextRecord = bodyStart + length;
+        if(nextRecord>windowStart + window.limit())
+        {
+            map(recordStart);
+            window.position((int)(bodyStart - windowStart));
+        }
+        movesEnd = (int)(nextRecord - windowStart);
+        dealNumber = window.getLong();
+        moveCount = getVarint(movesEnd);
+        movesStart = window.position();
+        //every move takes at least one byte
+        if(moveCount<0 || moveCount>movesEnd - movesStart)
+        {
+            throw new IOException("damaged record at byte " + recordStart + ": " + moveCount + " moves");
+        }
+        return true;
+    }
+
+    /**
+     * Gets the deal number of the current game.
+     * @return the deal number.
+     */
+    public long getDealNumber()
+    {
+        return dealNumber;
+    }
+
+    /**
+     * Gets the number of moves in the current game.
+     * @return the number of moves.
+     */
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Copies the moves of the current game into an array.
+     * @param moves an array at least getMoveCount() long
+     * @postcondition the moves are at the start of the array, in order.
+     * @throws IOException if the moves run past the end of the record,
+     *         which means the archive is damaged
+     */
+    public void readMoves(int[] moves) throws IOException
+    {
+        window.position(movesStart);
+        for(int i = 0; i<moveCount; i++)
+        {
+            moves[i] = getVarint(movesEnd);
+        }
+    }
+
+    /**
+     * Deals the current game and makes all of its moves.
+     * @param state the GameState to play the game on
+     * @postcondition the state holds the position at the end of the game.
+     * @throws IOException if one of the moves isn't legal or the moves run
+     *         past the end of the record, which means the archive is damaged
+     */
+    public void replay(GameState state) throws IOException
+    {
+        Deals.deal(dealNumber, state);
+        window.position(movesStart);
+        for(int i = 0; i<moveCount; i++)
+        {
+            int move = getVarint(movesEnd);
+            if(!state.isLegal(move))
+            {
+                throw new IOException("illegal move " + Moves.toString(move) + " in deal "
+                                      + dealNumber + " at byte " + recordStart);
+            }
+            state.apply(move);
+        }
+    }
+
+    /**
+     * Closes the archive.
+     * @postcondition the file is closed.
+     * @throws IOException if the file can't be closed
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Maps a window of the file into memory.
+     * @param start where in the file the window begins
+     * @postcondition the window holds the file from start on.
+     * @throws IOException if the file can't be mapped
+     */
+    private void map(long start) throws IOException
+    {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+    }
+
+    /**
+     * Reads a varint from the window, without going past a given point.
+     * @param end where in the window the varint must end by
+     * @return the value read.
+     * @throws IOException if the varint runs past end or is longer than
+     *         an int can be, which means the archive is damaged
+     */
+    private int getVarint(int end) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift<32; shift += 7)
+        {
+            if(window.position()>=end)
+            {
+                break;
+            }
+            byte b = window.get();
+            value |= (b & 0x7F) << shift;
+            if(b>=0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("damaged record at byte " + recordStart);
+    }
+}
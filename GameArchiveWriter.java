@@ -0,0 +1,200 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+/**
+ * The GameArchiveWriter class appends recorded games to an archive file.
+ * The file starts with the bytes "SOLR" and a version number; after that
+ * each game is stored as
+ * <pre>
+ *   varint   the number of bytes in the rest of the record
+ *   8 bytes  the deal number
+ *   varint   the number of moves
+ *   varints  the moves, as coded by the Moves class
+ * </pre>
+ * where a varint stores 7 bits in each byte, the lowest first, with the
+ * top bit set on every byte but the last. Most moves take two bytes.
+ * Records are gathered in a buffer and written in large batches.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class GameArchiveWriter implements Closeable
+{
+    /**
+     * Constants
+     */
+    public static final int MAGIC = 0x534F4C52; //"SOLR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 5;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Instance variables
+     */
+    private final FileChannel channel; //stores the archive file
+    private ByteBuffer buffer; //stores records not yet written
+    private ByteBuffer record; //stores the record being put together
+    private long games; //stores the number of games written
+
+    /**
+     * Constructor with parameters; opens an archive, creating it if it
+     * doesn't exist, so that games are added to the end of it.
+     * @param path the archive file
+     * @throws IOException if the file can't be opened or isn't an archive
+     */
+    public GameArchiveWriter(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        record = ByteBuffer.allocate(256);
+        if(channel.size()==0)
+        {
+            buffer.putInt(MAGIC).put((byte)VERSION);
+        }
+        else
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if(header.remaining()<HEADER_SIZE || header.getInt()!=MAGIC || header.get()!=VERSION)
+            {
+                channel.close();
+                throw new IOException("not a game archive: " + path);
+            }
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Adds the moves made so far in a game to the archive.
+     * @param game a Solitaire game
+     * @postcondition the game has been added to the archive.
+     * @throws IOException if the archive can't be written
+     */
+    public void write(Solitaire game) throws IOException
+    {
+        record.clear();
+        record.putLong(game.getDealNumber());
+        putVarint(game.getMoveCount());
+        for(int i = 0; i<game.getMoveCount(); i++)
+        {
+            putVarint(game.getMove(i));
+        }
+        finishRecord();
+    }
+
+    /**
+     * Adds a game to the archive.
+     * @param dealNumber the number of the deal
+     * @param moves the moves made, in order
+     * @param count the number of moves
+     * @postcondition the game has been added to the archive.
+     * @throws IOException if the archive can't be written
+     */
+    public void write(long dealNumber, int[] moves, int count) throws IOException
+    {
+        record.clear();
+        record.putLong(dealNumber);
+        putVarint(count);
+        for(int i = 0; i<count; i++)
+        {
+            putVarint(moves[i]);
+        }
+        finishRecord();
+    }
+
+    /**
+     * Gets the number of games written since the archive was opened.
+     * @return the number of games written.
+     */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /**
+     * Writes every buffered game to the file.
+     * @postcondition the buffer is empty.
+     * @throws IOException if the archive can't be written
+     */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes every buffered game and closes the file.
+     * @postcondition the archive is closed.
+     * @throws IOException if the archive can't be written
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Moves the record being put together into the buffer, with its length
+     * in front, writing the buffer out first if it is too full.
+     * @postcondition the record is in the buffer.
+     * @throws IOException if the archive can't be written
+     */
+    private void finishRecord() throws IOException
+    {
+        record.flip();
+        int length = record.remaining();
+        if(buffer.remaining()<length + 5)
+        {
+            flush();
+            if(buffer.capacity()<length + 5)
+            {
+                buffer = ByteBuffer.allocateDirect(length + 5);
+            }
+        }
+        for(int value = length; ; value >>>= 7)
+        {
+            if((value & ~0x7F)==0)
+            {
+                buffer.put((byte)value);
+                break;
+            }
+            buffer.put((byte)(value & 0x7F | 0x80));
+        }
+        buffer.put(record);
+        games++;
+    }
+
+    /**
+     * Adds a varint to the record being put together.
+     * @param value a value that is not negative
+     * @postcondition the value has been added to the record.
+     */
+    private void putVarint(int value)
+    {
+        if(record.remaining()<5)
+        {
+            ByteBuffer bigger = ByteBuffer.allocate(record.capacity() * 2);
+            record.flip();
+            bigger.put(record);
+            record = bigger;
+        }
+        while((value & ~0x7F)!=0)
+        {
+            record.put((byte)(value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        record.put((byte)value);
+    }
+}
@@ -0,0 +1,1243 @@
+import java.nio.*;
+import java.util.*;
+/**
+ * The GameState class stores the cards of a game of Solitaire in one
+ * fixed-size array of bytes instead of Stacks of Card objects. Each card
+ * is coded as suit * 13 + (rank - 1), where the suits are clubs, diamonds,
+ * hearts and spades in that order. Every pile keeps its face down cards
+ * at the bottom, so a count of them is all that is needed to know which
+ * cards are face up. Because the size never changes, copying and
+ * comparing states take the same (small) time for every position. A
+ * Zobrist hash of the state is kept up to date as cards move, so hashing
+ * a state takes no time at all. Counts of foundation cards, face-down
+ * cards and stock passes are kept the same way, so checking for a win or
+ * measuring progress needs no counting.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class GameState
+{
+    /**
+     * Constants
+     */
+    public static final int NO_CARD = -1; //stands for an empty stock, waste, foundation or pile
+    public static final int PILE_CAPACITY = 19; //six face down cards plus a king to an ace
+    private static final int STOCK_CAPACITY = 24; //cards left over after the deal
+
+    private static final int STOCK = 0; //offset of the stock, bottom card first
+    private static final int WASTE = STOCK + STOCK_CAPACITY; //offset of the waste
+    private static final int PILES = WASTE + STOCK_CAPACITY; //offset of the seven piles
+    private static final int FOUNDATIONS = PILES + 7 * PILE_CAPACITY; //top card of each foundation
+    private static final int STOCK_SIZE = FOUNDATIONS + 4; //number of cards in the stock
+    private static final int WASTE_SIZE = STOCK_SIZE + 1; //number of cards in the waste
+    private static final int PILE_SIZES = WASTE_SIZE + 1; //number of cards in each pile
+    private static final int PILE_DOWNS = PILE_SIZES + 7; //number of face down cards in each pile
+    private static final int LENGTH = PILE_DOWNS + 7;
+    public static final int BYTES = LENGTH; //size of a state written with writeTo
+
+    //random Zobrist keys: one for each card in each spot of the stock, waste
+    //and piles, for each card on top of each foundation and for each count
+    //of face down cards in each pile; empty foundations and piles with no
+    //face down cards have a key of zero, so an empty state hashes to zero
+    private static final long[] CARD_KEYS = new long[52 * FOUNDATIONS];
+    private static final long[] FOUNDATION_KEYS = new long[4 * 53];
+    private static final long[] DOWN_KEYS = new long[7 * PILE_CAPACITY];
+
+    //stores, for each card, the card of the same rank in the other suit of
+    //the same colour: clubs and spades, and diamonds and hearts, swap
+    private static final int[] SWAPPED = new int[52];
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(0x50117A12EL);
+        for(int i = 0; i<CARD_KEYS.length; i++)
+        {
+            CARD_KEYS[i] = random.nextLong();
+        }
+        for(int i = 0; i<FOUNDATION_KEYS.length; i++)
+        {
+            FOUNDATION_KEYS[i] = i % 53==0 ? 0 : random.nextLong();
+        }
+        for(int i = 0; i<DOWN_KEYS.length; i++)
+        {
+            DOWN_KEYS[i] = i % PILE_CAPACITY==0 ? 0 : random.nextLong();
+        }
+        for(int card = 0; card<52; card++)
+        {
+            SWAPPED[card] = (3 - card / 13) * 13 + card % 13;
+        }
+    }
+
+    /**
+     * Instance variables
+     */
+    private final byte[] data; //stores every part of the game state
+    private long hash; //stores the Zobrist hash of the state
+    private int foundationCards; //stores the number of cards on the foundations
+    private int faceDownCards; //stores the number of face down cards in the piles
+    private int stockPasses; //stores the number of times the waste has been turned over, less those taken back
+    private final long[] accepts; //stores the set of cards each pile takes
+    private final byte[] acceptors; //stores, for each card, a mask with bit p set if pile p takes it
+    private long accepting; //stores the set of cards some pile takes
+
+    /**
+     * Default constructor; creates a state with no cards anywhere.
+     */
+    public GameState()
+    {
+        data = new byte[LENGTH];
+        accepts = new long[7];
+        acceptors = new byte[52];
+        clear();
+    }
+
+    /**
+     * Gets the rank of a coded card.
+     * @param card a card code between 0 and 51
+     * @return the rank of the card, between 1 and 13.
+     */
+    public static int rank(int card)
+    {
+        return card % 13 + 1;
+    }
+
+    /**
+     * Gets the suit of a coded card.
+     * @param card a card code between 0 and 51
+     * @return the suit of the card: 0 for clubs, 1 for diamonds,
+     *         2 for hearts and 3 for spades.
+     */
+    public static int suit(int card)
+    {
+        return card / 13;
+    }
+
+    /**
+     * Checks whether a coded card is red.
+     * @param card a card code between 0 and 51
+     * @return true if the card is a diamond or heart, false otherwise.
+     */
+    public static boolean isRed(int card)
+    {
+        int suit = suit(card);
+        return suit==1 || suit==2;
+    }
+
+    /**
+     * Gets the code of a card.
+     * @param rank the rank of the card, between 1 and 13
+     * @param suit the suit of the card, between 0 and 3
+     * @return the code of the card.
+     */
+    public static int code(int rank, int suit)
+    {
+        return suit * 13 + rank - 1;
+    }
+
+    /**
+     * Removes every card from the state.
+     * @postcondition the stock, waste, foundations and piles are empty.
+     */
+    public void clear()
+    {
+        Arrays.fill(data, 0, STOCK_SIZE, (byte)NO_CARD);
+        Arrays.fill(data, STOCK_SIZE, LENGTH, (byte)0);
+        hash = 0;
+        foundationCards = 0;
+        faceDownCards = 0;
+        stockPasses = 0;
+        Arrays.fill(accepts, Rules.KINGS);
+        Arrays.fill(acceptors, (byte)0);
+        for(long kings = Rules.KINGS; kings!=0; kings &= kings - 1)
+        {
+            acceptors[Long.numberOfTrailingZeros(kings)] = 0x7F;
+        }
+        accepting = Rules.KINGS;
+    }
+
+    /**
+     * Deals a shuffled deck: the first 28 cards go onto the piles, the
+     * first pile getting one card, the second two and so on, with the last
+     * card of each pile face up. The other 24 cards become the stock, the
+     * last card of the deck being on top.
+     * @param deck the 52 card codes in shuffled order
+     * @postcondition the state holds a freshly dealt game.
+     */
+    public void deal(byte[] deck)
+    {
+        clear();
+        int next = 0;
+        for(int i = 0; i<7; i++)
+        {
+            for(int j = 0; j<=i; j++)
+            {
+                push(PILES + i * PILE_CAPACITY, PILE_SIZES + i, deck[next++]);
+            }
+            setFaceDown(i, i);
+        }
+        while(next<deck.length)
+        {
+            push(STOCK, STOCK_SIZE, deck[next++]);
+        }
+    }
+
+    /**
+     * Copies another state into this one, with its count of stock passes.
+     * @param other a GameState
+     * @postcondition this state is equal to other.
+     */
+    public void copyFrom(GameState other)
+    {
+        System.arraycopy(other.data, 0, data, 0, LENGTH);
+        hash = other.hash;
+        foundationCards = other.foundationCards;
+        faceDownCards = other.faceDownCards;
+        stockPasses = other.stockPasses;
+        System.arraycopy(other.accepts, 0, accepts, 0, 7);
+        System.arraycopy(other.acceptors, 0, acceptors, 0, 52);
+        accepting = other.accepting;
+    }
+
+    /**
+     * Writes the state as BYTES bytes: the cards of the stock, waste and
+     * piles, the top card of each foundation, and the number of cards and
+     * face down cards in each part.
+     * @param buffer a buffer with at least BYTES bytes remaining
+     * @postcondition the state has been written to the buffer.
+     */
+    public void writeTo(ByteBuffer buffer)
+    {
+        buffer.put(data);
+    }
+
+    /**
+     * Reads a state written by writeTo, checking that every card is
+     * somewhere exactly once and every part is the right size. Only the
+     * cards are written, so the count of stock passes starts again from 0.
+     * @param buffer a buffer with at least BYTES bytes remaining
+     * @postcondition this state is the one read, or is unchanged if it
+     *                wasn't a possible state.
+     * @throws IllegalArgumentException if the bytes aren't a possible state
+     */
+    public void readFrom(ByteBuffer buffer)
+    {
+        byte[] read = new byte[LENGTH];
+        buffer.get(read);
+        String problem = check(read);
+        if(problem!=null)
+        {
+            throw new IllegalArgumentException("bad game state: " + problem);
+        }
+        System.arraycopy(read, 0, data, 0, LENGTH);
+        hash = 0;
+        foundationCards = 0;
+        faceDownCards = 0;
+        stockPasses = 0;
+        for(int i = 0; i<FOUNDATIONS; i++)
+        {
+            if(data[i]!=NO_CARD)
+            {
+                hash ^= CARD_KEYS[data[i] * FOUNDATIONS + i];
+            }
+        }
+        for(int f = 0; f<4; f++)
+        {
+            hash ^= FOUNDATION_KEYS[f * 53 + 1 + data[FOUNDATIONS + f]];
+            foundationCards += rank(data[FOUNDATIONS + f]);
+        }
+        for(int p = 0; p<7; p++)
+        {
+            hash ^= DOWN_KEYS[p * PILE_CAPACITY + data[PILE_DOWNS + p]];
+            faceDownCards += data[PILE_DOWNS + p];
+            updateAccepts(p);
+        }
+    }
+
+    /**
+     * Makes a copy of this state.
+     * @return a new GameState equal to this one.
+     */
+    public GameState copy()
+    {
+        GameState state = new GameState();
+        state.copyFrom(this);
+        return state;
+    }
+
+    /**
+     * Checks whether this state holds the same cards in the same places
+     * as another object.
+     * @param other an object
+     * @return true if other is an equal GameState, false otherwise.
+     */
+    public boolean equals(Object other)
+    {
+        return other instanceof GameState && Arrays.equals(data, ((GameState)other).data);
+    }
+
+    /**
+     * Gets a hash code for the state.
+     * @return a hash code consistent with equals.
+     */
+    public int hashCode()
+    {
+        return (int)(hash ^ hash >>> 32);
+    }
+
+    /**
+     * Gets the Zobrist hash of the state. Two equal states always have
+     * the same hash, and two different states almost never do.
+     * @return the 64 bit hash of the state.
+     */
+    public long zobristHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Gets a hash that is the same for positions that differ only in ways
+     * that can't change how the game goes: which pile holds which column
+     * of cards, which foundation holds which suit, and swapping clubs with
+     * spades or diamonds with hearts everywhere. Each pile is hashed on its
+     * own and the piles are added up, and the smallest hash over the four
+     * ways of swapping suits is kept. The black and the red cards are
+     * hashed with and without their suits swapped in one pass, and the
+     * four ways put together from those. It is worked out from scratch,
+     * which takes a few hundred nanoseconds.
+     * @return the 64 bit hash of the position.
+     */
+    public long canonicalHash()
+    {
+        //the keys of the black and the red cards, unswapped (0) and swapped
+        //(1); red is all ones for a red card, so colours need no branches
+        long black0 = 0;
+        long black1 = 0;
+        long red0 = 0;
+        long red1 = 0;
+        for(int i = 0; i<PILES; i++)
+        {
+            int card = data[i];
+            if(card!=NO_CARD)
+            {
+                long red = -(0x6 >> suit(card) & 1);
+                long key = CARD_KEYS[card * FOUNDATIONS + i];
+                long swapped = CARD_KEYS[SWAPPED[card] * FOUNDATIONS + i];
+                red0 ^= key & red;
+                red1 ^= swapped & red;
+                black0 ^= key & ~red;
+                black1 ^= swapped & ~red;
+            }
+        }
+        for(int f = 0; f<4; f++)
+        {
+            int top = data[FOUNDATIONS + f];
+            if(top!=NO_CARD)
+            {
+                long red = -(0x6 >> suit(top) & 1);
+                long key = FOUNDATION_KEYS[suit(top) * 53 + 1 + top];
+                long swapped = FOUNDATION_KEYS[suit(SWAPPED[top]) * 53 + 1 + SWAPPED[top]];
+                red0 ^= key & red;
+                red1 ^= swapped & red;
+                black0 ^= key & ~red;
+                black1 ^= swapped & ~red;
+            }
+        }
+        long sum0 = black0 ^ red0;
+        long sum1 = black1 ^ red0;
+        long sum2 = black0 ^ red1;
+        long sum3 = black1 ^ red1;
+        for(int p = 0; p<7; p++)
+        {
+            int base = PILES + p * PILE_CAPACITY;
+            long down = DOWN_KEYS[data[PILE_DOWNS + p]];
+            long pileBlack0 = 0;
+            long pileBlack1 = 0;
+            long pileRed0 = 0;
+            long pileRed1 = 0;
+            for(int i = 0; i<data[PILE_SIZES + p]; i++)
+            {
+                int card = data[base + i];
+                long red = -(0x6 >> suit(card) & 1);
+                long key = CARD_KEYS[card * FOUNDATIONS + PILES + i];
+                long swapped = CARD_KEYS[SWAPPED[card] * FOUNDATIONS + PILES + i];
+                pileRed0 ^= key & red;
+                pileRed1 ^= swapped & red;
+                pileBlack0 ^= key & ~red;
+                pileBlack1 ^= swapped & ~red;
+            }
+            sum0 += mix(down ^ pileBlack0 ^ pileRed0);
+            sum1 += mix(down ^ pileBlack1 ^ pileRed0);
+            sum2 += mix(down ^ pileBlack0 ^ pileRed1);
+            sum3 += mix(down ^ pileBlack1 ^ pileRed1);
+        }
+        return Math.min(Math.min(sum0, sum1), Math.min(sum2, sum3));
+    }
+
+    /**
+     * Scrambles the bits of a hash, so that adding scrambled hashes
+     * doesn't let different piles add up to the same total.
+     * @param key a hash
+     * @return the scrambled hash, 0 if key is 0.
+     */
+    private static long mix(long key)
+    {
+        key = (key ^ key >>> 33) * 0xFF51AFD7ED558CCDL;
+        key = (key ^ key >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return key ^ key >>> 33;
+    }
+
+    /**
+     * Gets the number of cards in the stock.
+     * @return the number of cards in the stock.
+     */
+    public int stockSize()
+    {
+        return data[STOCK_SIZE];
+    }
+
+    /**
+     * Gets the number of cards in the waste.
+     * @return the number of cards in the waste.
+     */
+    public int wasteSize()
+    {
+        return data[WASTE_SIZE];
+    }
+
+    /**
+     * Gets the card on top of the stock.
+     * @return the card on top of the stock, or NO_CARD if it is empty.
+     */
+    public int stockTop()
+    {
+        return top(STOCK, STOCK_SIZE);
+    }
+
+    /**
+     * Gets the card on top of the waste.
+     * @return the card on top of the waste, or NO_CARD if it is empty.
+     */
+    public int wasteTop()
+    {
+        return top(WASTE, WASTE_SIZE);
+    }
+
+    /**
+     * Gets a card in the stock.
+     * @param position a position in the stock, 0 being the bottom card
+     * @return the card at the given position.
+     */
+    public int stockCard(int position)
+    {
+        return data[STOCK + position];
+    }
+
+    /**
+     * Gets a card in the waste.
+     * @param position a position in the waste, 0 being the bottom card
+     * @return the card at the given position.
+     */
+    public int wasteCard(int position)
+    {
+        return data[WASTE + position];
+    }
+
+    /**
+     * Gets the card on top of a foundation.
+     * @param index an index into the foundations, between 0 and 3
+     * @return the card on top of the foundation, or NO_CARD if it is empty.
+     */
+    public int foundationTop(int index)
+    {
+        return data[FOUNDATIONS + index];
+    }
+
+    /**
+     * Gets the number of cards in a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the number of cards in the pile.
+     */
+    public int pileSize(int index)
+    {
+        return data[PILE_SIZES + index];
+    }
+
+    /**
+     * Gets the number of face down cards at the bottom of a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the number of face down cards in the pile.
+     */
+    public int pileFaceDown(int index)
+    {
+        return data[PILE_DOWNS + index];
+    }
+
+    /**
+     * Gets a card in a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @param position a position in the pile, 0 being the bottom card
+     * @return the card at the given position.
+     */
+    public int pileCard(int index, int position)
+    {
+        return data[PILES + index * PILE_CAPACITY + position];
+    }
+
+    /**
+     * Gets the card on top of a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the top card of the pile, or NO_CARD if it is empty.
+     */
+    public int pileTop(int index)
+    {
+        return top(PILES + index * PILE_CAPACITY, PILE_SIZES + index);
+    }
+
+    /**
+     * Checks whether the top card of a pile is face up.
+     * @param index an index into the piles, between 0 and 6
+     * @return true if the pile isn't empty and its top card is face up.
+     */
+    public boolean isPileTopFaceUp(int index)
+    {
+        return data[PILE_DOWNS + index]<data[PILE_SIZES + index];
+    }
+
+    /**
+     * Checks whether the given card can be added to a pile.
+     * @param card a card code
+     * @param index an index into the piles, between 0 and 6
+     * @return true if the pile is empty and the card is a king, or if the
+     *         top card of the pile is face up, of the opposite colour
+     *         and one rank higher than the card; false otherwise.
+     */
+    public boolean canAddToPile(int card, int index)
+    {
+        return Rules.contains(pileAccepts(index), card);
+    }
+
+    /**
+     * Gets the cards that can be added to a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the set of cards the pile takes: the kings if it is empty,
+     *         none if its top card is face down.
+     */
+    public long pileAccepts(int index)
+    {
+        return accepts[index];
+    }
+
+    /**
+     * Finds every pile a card can be added to.
+     * @param card a card code
+     * @return a mask with bit p set if pile p takes the card.
+     */
+    public int acceptingPiles(int card)
+    {
+        return acceptors[card];
+    }
+
+    /**
+     * Gets the cards that can be added to some pile.
+     * @return the set of cards at least one pile takes.
+     */
+    public long pilesAccept()
+    {
+        return accepting;
+    }
+
+    /**
+     * Works out the cards that can be added to a pile from the Rules tables.
+     * @param index an index into the piles, between 0 and 6
+     * @return the set of cards the pile takes.
+     */
+    private long topAccepts(int index)
+    {
+        int size = data[PILE_SIZES + index];
+        if(size==0)
+        {
+            return Rules.KINGS;
+        }
+        if(data[PILE_DOWNS + index]==size)
+        {
+            return 0;
+        }
+        return Rules.pileAccepts(data[PILES + index * PILE_CAPACITY + size - 1]);
+    }
+
+    /**
+     * Checks whether the given card can be added to a foundation.
+     * @param card a card code
+     * @param index an index into the foundations, between 0 and 3
+     * @return true if the foundation is empty and the card is an ace, or
+     *         if the top card of the foundation is of the same suit and
+     *         one rank lower than the card; false otherwise.
+     */
+    public boolean canAddToFoundation(int card, int index)
+    {
+        return Rules.contains(Rules.foundationAccepts(data[FOUNDATIONS + index]), card);
+    }
+
+    /**
+     * Gets the cards that can be added to some foundation.
+     * @return the set of the next card of each suit.
+     */
+    public long foundationsAccept()
+    {
+        long cards = 0;
+        for(int f = 0; f<4; f++)
+        {
+            cards |= Rules.foundationAccepts(data[FOUNDATIONS + f]);
+        }
+        return cards;
+    }
+
+    /**
+     * Gets how far the foundation of a suit has been built.
+     * @param suit a suit between 0 and 3
+     * @return the rank of the top card of the suit's foundation, or 0 if
+     *         no card of the suit is on a foundation.
+     */
+    public int foundationRank(int suit)
+    {
+        for(int i = 0; i<4; i++)
+        {
+            int top = foundationTop(i);
+            if(top!=NO_CARD && suit(top)==suit)
+            {
+                return rank(top);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds a foundation a card can be added to.
+     * @param card a card code
+     * @return the index of the first foundation that can take the card,
+     *         or -1 if there isn't one.
+     */
+    public int foundationFor(int card)
+    {
+        if(!Rules.contains(foundationsAccept(), card))
+        {
+            return -1;
+        }
+        for(int f = 0; f<4; f++)
+        {
+            if(canAddToFoundation(card, f))
+            {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a card can go to the foundations without risk: it is
+     * an ace or a two, or both cards of the other colour one rank lower
+     * and the other card of its colour two ranks lower are already there,
+     * so no card left could ever need to be put on it.
+     * @param card a card code
+     * @return true if playing the card to a foundation is safe.
+     */
+    public boolean isSafeForFoundation(int card)
+    {
+        int rank = rank(card);
+        if(rank<=2)
+        {
+            return true;
+        }
+        boolean red = isRed(card);
+        for(int suit = 0; suit<4; suit++)
+        {
+            if(suit!=suit(card))
+            {
+                boolean otherRed = suit==1 || suit==2;
+                int needed = red!=otherRed ? rank - 1 : rank - 2;
+                if(foundationRank(suit)<needed)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a move of a face up card from a pile or the waste to a
+     * foundation that is safe, as decided by isSafeForFoundation.
+     * @return the move, or Moves.NONE if there isn't one.
+     */
+    public int safeFoundationMove()
+    {
+        for(int p = 0; p<7; p++)
+        {
+            if(isPileTopFaceUp(p) && isSafeForFoundation(pileTop(p)))
+            {
+                int f = foundationFor(pileTop(p));
+                if(f>=0)
+                {
+                    return Moves.make(Moves.PILE_TO_FOUNDATION, p, f, 1);
+                }
+            }
+        }
+        int waste = wasteTop();
+        if(waste!=NO_CARD && isSafeForFoundation(waste))
+        {
+            int f = foundationFor(waste);
+            if(f>=0)
+            {
+                return Moves.make(Moves.WASTE_TO_FOUNDATION, 0, f, 1);
+            }
+        }
+        return Moves.NONE;
+    }
+
+    /**
+     * Checks whether every foundation has been built up to a king.
+     * @return true if the game has been won, false otherwise.
+     */
+    public boolean isWon()
+    {
+        return foundationCards==52;
+    }
+
+    /**
+     * Gets the number of cards on the foundations, which is kept as moves
+     * are made rather than counted.
+     * @return the number of cards on the foundations, between 0 and 52.
+     */
+    public int foundationCount()
+    {
+        return foundationCards;
+    }
+
+    /**
+     * Gets the number of face down cards left in the piles, which is kept
+     * as moves are made rather than counted.
+     * @return the number of face down cards, between 0 and 21.
+     */
+    public int faceDownCount()
+    {
+        return faceDownCards;
+    }
+
+    /**
+     * Gets the number of times the waste has been turned over into the
+     * stock since the deal or the state was read. The count isn't part of
+     * the position, so equal states may have made different numbers of
+     * passes.
+     * @return the number of RESET moves made, less those taken back.
+     */
+    public int stockPasses()
+    {
+        return stockPasses;
+    }
+
+    /**
+     * Gets the move the stock makes when it is clicked.
+     * @return a DRAW move if the stock isn't empty, otherwise a RESET move
+     *         if the waste isn't empty, otherwise Moves.NONE.
+     */
+    public int drawMove()
+    {
+        if(stockSize()>0)
+        {
+            return Moves.make(Moves.DRAW, 0, 0, Math.min(3, stockSize()));
+        }
+        else if(wasteSize()>0)
+        {
+            return Moves.make(Moves.RESET, 0, 0, wasteSize());
+        }
+        return Moves.NONE;
+    }
+
+    /**
+     * Gets the move of face up cards from one pile onto another. Only the
+     * top part of the face up cards that fits is moved, which may be all
+     * of them; since the face up cards of a pile go down in rank, at most
+     * one card among them can be added to the other pile.
+     * @param from an index into the piles, between 0 and 6
+     * @param to an index into the piles, between 0 and 6
+     * @return the move, or Moves.NONE if none of the face up cards fit.
+     */
+    public int pileToPileMove(int from, int to)
+    {
+        int count = runThatFits(from, to);
+        if(count==0)
+        {
+            return Moves.NONE;
+        }
+        return Moves.make(Moves.PILE_TO_PILE, from, to, count);
+    }
+
+    /**
+     * Finds how many of the face up cards of one pile can be moved onto
+     * another. The other pile is checked first: its top card, or the lack
+     * of one, decides the only rank that can go on it.
+     * @param from an index into the piles, between 0 and 6
+     * @param to an index into the piles, between 0 and 6
+     * @return the number of cards from the top of the pile down to the
+     *         card that fits, or 0 if no card fits.
+     */
+    private int runThatFits(int from, int to)
+    {
+        int size = pileSize(from);
+        int down = pileFaceDown(from);
+        long takes = pileAccepts(to);
+        if(from==to || down>=size || takes==0)
+        {
+            return 0;
+        }
+        //every card the pile takes has the same rank, and face up cards go
+        //down in rank by one from the bottom, so the card with that rank,
+        //if there is one, is at a known position
+        int rank = rank(Long.numberOfTrailingZeros(takes));
+        int position = down + rank(pileCard(from, down)) - rank;
+        if(position<down || position>=size || !Rules.contains(takes, pileCard(from, position)))
+        {
+            return 0;
+        }
+        return size - position;
+    }
+
+    /**
+     * Checks whether a move can be made.
+     * @param move a move
+     * @return true if the move follows the rules in this state, false otherwise.
+     */
+    public boolean isLegal(int move)
+    {
+        if(move==Moves.NONE)
+        {
+            return false;
+        }
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int count = Moves.count(move);
+        switch(Moves.type(move))
+        {
+            case Moves.DRAW:
+                return from==0 && to==0 && stockSize()>0 && count==Math.min(3, stockSize());
+            case Moves.RESET:
+                return from==0 && to==0 && stockSize()==0 && wasteSize()>0 && count==wasteSize();
+            case Moves.WASTE_TO_PILE:
+                return from==0 && to<7 && count==1 && wasteSize()>0 && canAddToPile(wasteTop(), to);
+            case Moves.WASTE_TO_FOUNDATION:
+                return from==0 && to<4 && count==1 && wasteSize()>0
+                       && canAddToFoundation(wasteTop(), to);
+            case Moves.PILE_TO_FOUNDATION:
+                return from<7 && to<4 && count==1 && isPileTopFaceUp(from)
+                       && canAddToFoundation(pileTop(from), to);
+            case Moves.PILE_TO_PILE:
+                return from<7 && to<7 && count>0 && count==runThatFits(from, to);
+            case Moves.TURN_OVER:
+                return from<7 && to==0 && count==0 && pileSize(from)>0 && !isPileTopFaceUp(from);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Lists every legal move into the given array, without making any
+     * new objects: drawing from or resetting the stock, waste to pile,
+     * waste to foundation, pile to foundation, the face up cards of a pile
+     * to another pile, and turning over the top card of a pile.
+     * @param moves an array of at least Moves.MAX_MOVES ints
+     * @postcondition the legal moves are at the start of the array.
+     * @return the number of legal moves.
+     */
+    public int generateMoves(int[] moves)
+    {
+        return generateMoves(moves, 0);
+    }
+
+    /**
+     * Lists every legal move into part of the given array, so that a
+     * search can keep the moves for every depth in one array.
+     * @param moves an array with room for Moves.MAX_MOVES ints after offset
+     * @param offset where in the array to put the first move
+     * @postcondition the legal moves are in the array starting at offset.
+     * @return the number of legal moves.
+     */
+    public int generateMoves(int[] moves, int offset)
+    {
+        int n = offset;
+        long toFoundation = foundationsAccept();
+        int waste = wasteTop();
+        if(waste!=NO_CARD && Rules.contains(toFoundation, waste))
+        {
+            for(int f = 0; f<4; f++)
+            {
+                if(canAddToFoundation(waste, f))
+                {
+                    moves[n++] = Moves.make(Moves.WASTE_TO_FOUNDATION, 0, f, 1);
+                }
+            }
+        }
+        for(int p = 0; p<7; p++)
+        {
+            if(!isPileTopFaceUp(p))
+            {
+                if(pileSize(p)>0)
+                {
+                    moves[n++] = Moves.make(Moves.TURN_OVER, p, 0, 0);
+                }
+                continue;
+            }
+            int top = pileTop(p);
+            if(Rules.contains(toFoundation, top))
+            {
+                for(int f = 0; f<4; f++)
+                {
+                    if(canAddToFoundation(top, f))
+                    {
+                        moves[n++] = Moves.make(Moves.PILE_TO_FOUNDATION, p, f, 1);
+                    }
+                }
+            }
+            for(int q = 0; q<7; q++)
+            {
+                int count = runThatFits(p, q);
+                if(count>0)
+                {
+                    moves[n++] = Moves.make(Moves.PILE_TO_PILE, p, q, count);
+                }
+            }
+        }
+        if(waste!=NO_CARD && Rules.contains(accepting, waste))
+        {
+            for(int piles = acceptingPiles(waste); piles!=0; piles &= piles - 1)
+            {
+                moves[n++] = Moves.make(Moves.WASTE_TO_PILE, 0, Integer.numberOfTrailingZeros(piles), 1);
+            }
+        }
+        int draw = drawMove();
+        if(draw!=Moves.NONE)
+        {
+            moves[n++] = draw;
+        }
+        return n - offset;
+    }
+
+    /**
+     * Makes a move.
+     * @param move a move
+     * @precondition the move is legal in this state.
+     * @postcondition the move has been made.
+     */
+    public void apply(int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int count = Moves.count(move);
+        switch(Moves.type(move))
+        {
+            case Moves.DRAW:
+                transfer(STOCK, STOCK_SIZE, WASTE, WASTE_SIZE, count);
+                break;
+            case Moves.RESET:
+                transfer(WASTE, WASTE_SIZE, STOCK, STOCK_SIZE, count);
+                stockPasses++;
+                break;
+            case Moves.WASTE_TO_PILE:
+                push(PILES + to * PILE_CAPACITY, PILE_SIZES + to, pop(WASTE, WASTE_SIZE));
+                break;
+            case Moves.WASTE_TO_FOUNDATION:
+                setFoundation(to, pop(WASTE, WASTE_SIZE));
+                break;
+            case Moves.PILE_TO_FOUNDATION:
+                setFoundation(to, pop(PILES + from * PILE_CAPACITY, PILE_SIZES + from));
+                break;
+            case Moves.PILE_TO_PILE:
+                moveRun(from, to, count);
+                break;
+            case Moves.TURN_OVER:
+                setFaceDown(from, pileFaceDown(from) - 1);
+                break;
+        }
+    }
+
+    /**
+     * Takes back a move.
+     * @param move a move
+     * @precondition the move was the last move made.
+     * @postcondition the state is as it was before the move was made.
+     */
+    public void undo(int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int count = Moves.count(move);
+        switch(Moves.type(move))
+        {
+            case Moves.DRAW:
+                transfer(WASTE, WASTE_SIZE, STOCK, STOCK_SIZE, count);
+                break;
+            case Moves.RESET:
+                transfer(STOCK, STOCK_SIZE, WASTE, WASTE_SIZE, count);
+                stockPasses--;
+                break;
+            case Moves.WASTE_TO_PILE:
+                push(WASTE, WASTE_SIZE, pop(PILES + to * PILE_CAPACITY, PILE_SIZES + to));
+                break;
+            case Moves.WASTE_TO_FOUNDATION:
+                push(WASTE, WASTE_SIZE, popFoundation(to));
+                break;
+            case Moves.PILE_TO_FOUNDATION:
+                push(PILES + from * PILE_CAPACITY, PILE_SIZES + from, popFoundation(to));
+                break;
+            case Moves.PILE_TO_PILE:
+                moveRun(to, from, count);
+                break;
+            case Moves.TURN_OVER:
+                setFaceDown(from, pileFaceDown(from) + 1);
+                break;
+        }
+    }
+
+    /**
+     * Moves cards one at a time from the top of one part of the state to
+     * another, which reverses their order, as dealing onto the waste and
+     * turning the waste over both do.
+     * @param fromOffset where the first part's cards begin
+     * @param fromSize where the first part's size is stored
+     * @param toOffset where the second part's cards begin
+     * @param toSize where the second part's size is stored
+     * @param count the number of cards to move
+     * @postcondition the cards have been moved.
+     */
+    private void transfer(int fromOffset, int fromSize, int toOffset, int toSize, int count)
+    {
+        for(int i = 0; i<count; i++)
+        {
+            push(toOffset, toSize, pop(fromOffset, fromSize));
+        }
+    }
+
+    /**
+     * Moves the top cards of one pile onto another, keeping their order,
+     * as one copy of that slice of the array.
+     * @param from an index into the piles, between 0 and 6
+     * @param to an index into the piles, between 0 and 6
+     * @param count the number of cards to move
+     * @postcondition the cards have been moved.
+     */
+    private void moveRun(int from, int to, int count)
+    {
+        int source = PILES + from * PILE_CAPACITY + pileSize(from) - count;
+        int target = PILES + to * PILE_CAPACITY + pileSize(to);
+        System.arraycopy(data, source, data, target, count);
+        Arrays.fill(data, source, source + count, (byte)NO_CARD);
+        data[PILE_SIZES + from] -= count;
+        data[PILE_SIZES + to] += count;
+        for(int i = 0; i<count; i++)
+        {
+            int card = data[target + i];
+            hash ^= CARD_KEYS[card * FOUNDATIONS + source + i] ^ CARD_KEYS[card * FOUNDATIONS + target + i];
+        }
+        updateAccepts(from);
+        updateAccepts(to);
+    }
+
+    /**
+     * Takes the top card off a foundation.
+     * @param index an index into the foundations, between 0 and 3
+     * @precondition the foundation isn't empty.
+     * @return the card that was on top.
+     */
+    private int popFoundation(int index)
+    {
+        int card = data[FOUNDATIONS + index];
+        if(rank(card)==1)
+        {
+            setFoundation(index, NO_CARD);
+        }
+        else
+        {
+            setFoundation(index, card - 1);
+        }
+        return card;
+    }
+
+    /**
+     * Sets the top card of a foundation.
+     * @param index an index into the foundations, between 0 and 3
+     * @param card a card code, or NO_CARD
+     * @postcondition the card is on top of the foundation.
+     */
+    private void setFoundation(int index, int card)
+    {
+        int base = index * 53 + 1;
+        hash ^= FOUNDATION_KEYS[base + data[FOUNDATIONS + index]] ^ FOUNDATION_KEYS[base + card];
+        //the rank of a top card is the number of cards in its foundation,
+        //and rank gives 0 for NO_CARD
+        foundationCards += rank(card) - rank(data[FOUNDATIONS + index]);
+        data[FOUNDATIONS + index] = (byte)card;
+    }
+
+    /**
+     * Sets the number of face down cards in a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @param count the number of face down cards
+     * @postcondition the bottom count cards of the pile are face down.
+     */
+    private void setFaceDown(int index, int count)
+    {
+        int base = index * PILE_CAPACITY;
+        hash ^= DOWN_KEYS[base + data[PILE_DOWNS + index]] ^ DOWN_KEYS[base + count];
+        faceDownCards += count - data[PILE_DOWNS + index];
+        data[PILE_DOWNS + index] = (byte)count;
+        updateAccepts(index);
+    }
+
+    /**
+     * Brings the sets of cards the piles take up to date after the top of
+     * a pile has changed. A pile takes at most four cards, so this touches
+     * only those cards' masks.
+     * @param index an index into the piles, between 0 and 6
+     * @postcondition pileAccepts, acceptingPiles and pilesAccept agree
+     *                with the cards in the pile.
+     */
+    private void updateAccepts(int index)
+    {
+        long before = accepts[index];
+        long after = topAccepts(index);
+        if(before==after)
+        {
+            return;
+        }
+        accepts[index] = after;
+        for(long cards = before; cards!=0; cards &= cards - 1)
+        {
+            int card = Long.numberOfTrailingZeros(cards);
+            acceptors[card] &= ~(1 << index);
+            if(acceptors[card]==0)
+            {
+                accepting &= ~(1L << card);
+            }
+        }
+        for(long cards = after; cards!=0; cards &= cards - 1)
+        {
+            acceptors[Long.numberOfTrailingZeros(cards)] |= 1 << index;
+        }
+        accepting |= after;
+    }
+
+    /**
+     * Looks for what makes some bytes not a possible state.
+     * @param bytes the bytes of a state
+     * @return what is wrong, or null if nothing is.
+     */
+    private static String check(byte[] bytes)
+    {
+        boolean[] seen = new boolean[52];
+        int[] offsets = { STOCK, WASTE, PILES, PILES + PILE_CAPACITY, PILES + 2 * PILE_CAPACITY,
+                          PILES + 3 * PILE_CAPACITY, PILES + 4 * PILE_CAPACITY, PILES + 5 * PILE_CAPACITY,
+                          PILES + 6 * PILE_CAPACITY, FOUNDATIONS };
+        for(int part = 0; part<9; part++)
+        {
+            int size = bytes[STOCK_SIZE + part];
+            int capacity = offsets[part + 1] - offsets[part];
+            if(size<0 || size>capacity)
+            {
+                return "part " + part + " has " + size + " cards";
+            }
+            if(part>=2 && (bytes[PILE_DOWNS + part - 2]<0 || bytes[PILE_DOWNS + part - 2]>size))
+            {
+                return "pile " + (part - 2) + " has too many face down cards";
+            }
+            for(int i = 0; i<capacity; i++)
+            {
+                int card = bytes[offsets[part] + i];
+                if(i>=size ? card!=NO_CARD : card<0 || card>=52 || seen[card])
+                {
+                    return "part " + part + " has a bad card at " + i;
+                }
+                if(i<size)
+                {
+                    seen[card] = true;
+                }
+            }
+        }
+        for(int f = 0; f<4; f++)
+        {
+            int top = bytes[FOUNDATIONS + f];
+            if(top<NO_CARD || top>=52)
+            {
+                return "foundation " + f + " has a bad card";
+            }
+            for(int card = top; card>=0 && card>=suit(top) * 13; card--)
+            {
+                if(seen[card])
+                {
+                    return "card " + card + " is in two places";
+                }
+                seen[card] = true;
+            }
+        }
+        for(int card = 0; card<52; card++)
+        {
+            if(!seen[card])
+            {
+                return "card " + card + " is missing";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the top card of a part of the state.
+     * @param offset where the part's cards begin
+     * @param size where the part's size is stored
+     * @return the top card, or NO_CARD if the part is empty.
+     */
+    private int top(int offset, int size)
+    {
+        int n = data[size];
+        if(n==0)
+        {
+            return NO_CARD;
+        }
+        return data[offset + n - 1];
+    }
+
+    /**
+     * Pushes a card onto a part of the state.
+     * @param offset where the part's cards begin
+     * @param size where the part's size is stored
+     * @param card a card code
+     * @postcondition the card is on top of the part.
+     */
+    private void push(int offset, int size, int card)
+    {
+        int index = offset + data[size]++;
+        data[index] = (byte)card;
+        hash ^= CARD_KEYS[card * FOUNDATIONS + index];
+        if(size>=PILE_SIZES)
+        {
+            updateAccepts(size - PILE_SIZES);
+        }
+    }
+
+    /**
+     * Pops the top card off a part of the state.
+     * @param offset where the part's cards begin
+     * @param size where the part's size is stored
+     * @precondition the part isn't empty.
+     * @return the card that was on top.
+     */
+    private int pop(int offset, int size)
+    {
+        int index = offset + --data[size];
+        int card = data[index];
+        data[index] = NO_CARD;
+        hash ^= CARD_KEYS[card * FOUNDATIONS + index];
+        if(size>=PILE_SIZES)
+        {
+            updateAccepts(size - PILE_SIZES);
+        }
+        return card;
+    }
+}
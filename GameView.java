@@ -0,0 +1,224 @@
+/**
+ * The GameView class is a picture of a game at one moment: where the
+ * cards are, what is selected and how many moves have been made. A view
+ * never changes once it is made, so any thread may read one while the
+ * game goes on without it; a GameActor publishes a new view after each
+ * batch of commands it handles.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public final class GameView
+{
+    /**
+     * Instance variables
+     */
+    private final GameState state; //stores a copy of the cards, which is never changed
+    private final long dealNumber; //stores the number the game was dealt from
+    private final boolean wasteSelected; //stores whether the waste is selected
+    private final int selectedPile; //stores the index of the selected pile, or -1
+    private final int moveCount; //stores the number of moves made
+    private final long commandsHandled; //stores the number of commands handled before the view was made
+    private final long madeNanos; //stores when the view was made, by System.nanoTime
+
+    /**
+     * Constructor with parameters; takes a picture of a game.
+     * @param game the game, which must not be changed until this returns
+     * @param initCommandsHandled the number of commands handled so far
+     */
+    public GameView(Solitaire game, long initCommandsHandled)
+    {
+        state = game.getState();
+        dealNumber = game.getDealNumber();
+        wasteSelected = game.isWasteSelected();
+        selectedPile = game.selectedPile();
+        moveCount = game.getMoveCount();
+        commandsHandled = initCommandsHandled;
+        madeNanos = System.nanoTime();
+    }
+
+    /**
+     * Gets the number the game was dealt from.
+     * @return the deal number.
+     */
+    public long getDealNumber()
+    {
+        return dealNumber;
+    }
+
+    /**
+     * Gets the number of cards in the stock.
+     * @return the number of cards in the stock.
+     */
+    public int getStockSize()
+    {
+        return state.stockSize();
+    }
+
+    /**
+     * Gets the card on top of the stock.
+     * @return the card code, or GameState.NO_CARD if the stock is empty.
+     */
+    public int getStockTop()
+    {
+        return state.stockTop();
+    }
+
+    /**
+     * Gets the number of cards in the waste.
+     * @return the number of cards in the waste.
+     */
+    public int getWasteSize()
+    {
+        return state.wasteSize();
+    }
+
+    /**
+     * Gets the card on top of the waste.
+     * @return the card code, or GameState.NO_CARD if the waste is empty.
+     */
+    public int getWasteTop()
+    {
+        return state.wasteTop();
+    }
+
+    /**
+     * Gets the card on top of a foundation.
+     * @param index an index into the foundations, between 0 and 3
+     * @return the card code, or GameState.NO_CARD if the foundation is empty.
+     */
+    public int getFoundationTop(int index)
+    {
+        return state.foundationTop(index);
+    }
+
+    /**
+     * Gets the number of cards in a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the number of cards in the pile.
+     */
+    public int getPileSize(int index)
+    {
+        return state.pileSize(index);
+    }
+
+    /**
+     * Gets the number of face down cards at the bottom of a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @return the number of face down cards in the pile.
+     */
+    public int getPileFaceDown(int index)
+    {
+        return state.pileFaceDown(index);
+    }
+
+    /**
+     * Gets a card in a pile.
+     * @param index an index into the piles, between 0 and 6
+     * @param position a position in the pile, 0 being the bottom card
+     * @return the card code.
+     */
+    public int getPileCard(int index, int position)
+    {
+        return state.pileCard(index, position);
+    }
+
+    /**
+     * Checks whether the waste is selected.
+     * @return true if the waste is selected, false otherwise.
+     */
+    public boolean isWasteSelected()
+    {
+        return wasteSelected;
+    }
+
+    /**
+     * Gets the index of the selected pile.
+     * @return the index of the selected pile, or -1 if no pile is selected.
+     */
+    public int getSelectedPile()
+    {
+        return selectedPile;
+    }
+
+    /**
+     * Checks whether the game has been won.
+     * @return true if every card is on a foundation, false otherwise.
+     */
+    public boolean isWon()
+    {
+        return state.isWon();
+    }
+
+    /**
+     * Gets the number of cards on the foundations.
+     * @return the number of cards on the foundations, between 0 and 52.
+     */
+    public int getFoundationCount()
+    {
+        return state.foundationCount();
+    }
+
+    /**
+     * Gets the number of face down cards left in the piles.
+     * @return the number of face down cards.
+     */
+    public int getFaceDownCount()
+    {
+        return state.faceDownCount();
+    }
+
+    /**
+     * Gets the number of times the waste has been turned over into the stock.
+     * @return the number of stock passes.
+     */
+    public int getStockPasses()
+    {
+        return state.stockPasses();
+    }
+
+    /**
+     * Gets the number of moves made in the game.
+     * @return the number of moves made, not counting moves taken back.
+     */
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Gets the number of commands the game had handled when the view was made.
+     * @return the number of commands handled.
+     */
+    public long getCommandsHandled()
+    {
+        return commandsHandled;
+    }
+
+    /**
+     * Gets when the view was made.
+     * @return the time the view was made, by System.nanoTime.
+     */
+    public long getMadeNanos()
+    {
+        return madeNanos;
+    }
+
+    /**
+     * Gets a hash of the position, which is the same whenever the cards
+     * are in the same places.
+     * @return the Zobrist hash of the cards.
+     */
+    public long getPositionHash()
+    {
+        return state.zobristHash();
+    }
+
+    /**
+     * Gets a copy of the cards, for searching.
+     * @return a copy of the game state.
+     */
+    public GameState getState()
+    {
+        return state.copy();
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.*;
+import java.nio.file.*;
+/**
+ * The HeadlessRunner class plays games of Solitaire without a display,
+ * using a simple greedy strategy, so that many games can be run in bulk.
+ * It only uses the game's move API, so no AWT or Swing classes are loaded.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class HeadlessRunner
+{
+    private static final int MAX_MOVES = 1000; //stops a game that is going nowhere
+
+    private int moves; //stores the number of moves made in the last game
+    private int[] legalMoves = new int[Moves.MAX_MOVES]; //stores the legal moves of a position
+
+    /**
+     * Plays the given number of games and prints a summary.
+     * @param games the number of games to play
+     * @postcondition the games have been played and the number of wins,
+     *                moves and games per second have been printed.
+     */
+    public static void run(int games)
+    {
+        try
+        {
+            run(games, null);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Plays the given number of games, recording each one in an archive,
+     * and prints a summary.
+     * @param games the number of games to play
+     * @param archive the archive file to add the games to, or null
+     * @postcondition the games have been played and recorded and the number
+     *                of wins, moves and games per second have been printed.
+     * @throws IOException if the archive can't be written
+     */
+    public static void run(int games, Path archive) throws IOException
+    {
+        HeadlessRunner runner = new HeadlessRunner();
+        GameArchiveWriter writer = archive==null ? null : new GameArchiveWriter(archive);
+        int wins = 0;
+        long totalMoves = 0;
+        long begin = System.nanoTime();
+        for(int i = 0; i<games; i++)
+        {
+            Solitaire game = new Solitaire();
+            if(runner.play(game))
+            {
+                wins++;
+            }
+            totalMoves += runner.getMoves();
+            if(writer!=null)
+            {
+                writer.write(game);
+            }
+        }
+        if(writer!=null)
+        {
+            writer.close();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println("Games played: " + games);
+        System.out.println("Games won: " + wins);
+        System.out.println("Moves made: " + totalMoves);
+        System.out.println("Games per second: " + (int)(games / seconds));
+    }
+
+    /**
+     * Plays a game until it is won or no more progress can be made.
+     * @param game a Solitaire game
+     * @postcondition the game has been played as far as the strategy allows.
+     * @return true if the game was won, false otherwise.
+     */
+    public boolean play(Solitaire game)
+    {
+        long begin = System.nanoTime();
+        Telemetry.GameEvent event = new Telemetry.GameEvent();
+        event.begin();
+        moves = 0;
+        int drawsWithoutProgress = 0;
+        while(!game.celebrateTime() && moves<MAX_MOVES)
+        {
+            if(makeMove(game))
+            {
+                drawsWithoutProgress = 0;
+            }
+            else
+            {
+                //a full pass through the stock with nothing played means we are stuck
+                int limit = (game.getStockSize() + game.getWasteSize()) / 3 + 2;
+                if(!game.drawFromStock() || drawsWithoutProgress++>limit)
+                {
+                    break;
+                }
+            }
+            moves++;
+        }
+        boolean won = game.celebrateTime();
+        Telemetry.record(Metrics.MOVES_PER_GAME, moves);
+        Telemetry.record(Metrics.GAME_TIME, System.nanoTime() - begin);
+        if(event.shouldCommit())
+        {
+            event.deal = game.getDealNumber();
+            event.moves = moves;
+            event.won = won;
+            event.commit();
+        }
+        return won;
+    }
+
+    /**
+     * Gets the number of moves made in the last game played.
+     * @return the number of moves made.
+     */
+    public int getMoves()
+    {
+        return moves;
+    }
+
+    /**
+     * Makes the first useful move other than drawing from the stock.
+     * @param game a Solitaire game
+     * @postcondition at most one move has been made.
+     * @return true if a move was made, false otherwise.
+     */
+    private boolean makeMove(Solitaire game)
+    {
+        for(int f = 0; f<4; f++)
+        {
+            if(game.moveWasteToFoundation(f))
+            {
+                return true;
+            }
+            for(int p = 0; p<7; p++)
+            {
+                if(game.movePileToFoundation(p, f))
+                {
+                    return true;
+                }
+            }
+        }
+        for(int p = 0; p<7; p++)
+        {
+            if(game.turnOverPile(p))
+            {
+                return true;
+            }
+        }
+        int n = game.getLegalMoves(legalMoves);
+        for(int i = 0; i<n; i++)
+        {
+            //only move a run if it uncovers a card, so kings don't shuffle forever
+            int move = legalMoves[i];
+            int from = Moves.from(move);
+            int below = game.getPileSize(from) - Moves.count(move) - 1;
+            if(Moves.type(move)==Moves.PILE_TO_PILE && below>=0 && !game.isPileCardFaceUp(from, below))
+            {
+                return game.play(move);
+            }
+        }
+        for(int p = 0; p<7; p++)
+        {
+            if(game.moveWasteToPile(p))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
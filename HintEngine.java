@@ -0,0 +1,136 @@
+import java.util.*;
+import java.util.concurrent.*;
+/**
+ * The HintEngine class looks for the best move in a position on a thread
+ * of its own, so that the thread handling clicks never waits for a search.
+ * Asking about a new position cancels the search still running for the
+ * last one. Hints are remembered by the hash of their position, so coming
+ * back to a position, for example after an undo, gives its hint at once.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class HintEngine
+{
+    /**
+     * The Listener interface receives hints. It is called on the engine's
+     * thread, or on the caller's thread for a hint that was remembered.
+     */
+    public interface Listener
+    {
+        /**
+         * Receives the hint for a position.
+         * @param position the hash of the position the hint is for
+         * @param move the suggested move, or Moves.NONE if there isn't one
+         */
+        void hintFound(long position, int move);
+    }
+
+    /**
+     * Constants
+     */
+    private static final int CACHE_SIZE = 4096; //most hints remembered
+    private static final int TABLE_BITS = 18; //size of the solver's transposition table
+
+    /**
+     * Instance variables
+     */
+    private final ExecutorService executor; //stores the thread the searches run on
+    private final Solver solver; //stores the solver, only used on the executor's thread
+    private final Map<Long, Integer> cache; //stores the hints found, by position hash
+    private Future<?> running; //stores the search in progress, or null
+
+    /**
+     * Constructor with parameters; starts the engine's thread.
+     * @param nodeLimit the most positions searched for one hint
+     * @param timeLimitMillis the most milliseconds spent on one hint
+     */
+    public HintEngine(long nodeLimit, long timeLimitMillis)
+    {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "hints");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        solver = new Solver(nodeLimit, timeLimitMillis, TABLE_BITS);
+        cache = Collections.synchronizedMap(new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest)
+            {
+                return size()>CACHE_SIZE;
+            }
+        });
+    }
+
+    /**
+     * Starts looking for a hint, stopping the search for the last position asked about.
+     * @param position the position, which must not be changed afterwards
+     * @param listener who to give the hint to
+     * @postcondition the listener will be given the hint, unless another
+     *                position is asked about before it is found.
+     */
+    public synchronized void analyse(final GameState position, final Listener listener)
+    {
+        if(running!=null)
+        {
+            running.cancel(true);
+            running = null;
+        }
+        final long hash = position.zobristHash();
+        Integer known = cache.get(hash);
+        if(known!=null)
+        {
+            listener.hintFound(hash, known);
+            return;
+        }
+        running = executor.submit(new Runnable() {
+            public void run()
+            {
+                int move = search(position);
+                if(!Thread.currentThread().isInterrupted())
+                {
+                    cache.put(hash, move);
+                    listener.hintFound(hash, move);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the hint already found for a position.
+     * @param position the hash of the position
+     * @return the suggested move, or Moves.NONE if there isn't one or it
+     *         hasn't been found yet.
+     */
+    public int getHint(long position)
+    {
+        Integer known = cache.get(position);
+        return known==null ? Moves.NONE : known;
+    }
+
+    /**
+     * Stops the engine's thread.
+     * @postcondition the search in progress has been cancelled and no more will run.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Finds the best move in a position: the first move of a win if the
+     * solver finds one, otherwise the move it thinks most promising.
+     * @param position the position
+     * @return the move, or Moves.NONE if there is no move worth making.
+     */
+    private int search(GameState position)
+    {
+        if(solver.solve(position)==Solver.WON && solver.getSolutionLength()>0)
+        {
+            return solver.getSolution()[0];
+        }
+        return solver.bestMove(position);
+    }
+}
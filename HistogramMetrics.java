@@ -0,0 +1,197 @@
+import java.util.concurrent.atomic.*;
+/**
+ * The HistogramMetrics class keeps a histogram of every metric, so that
+ * percentiles as well as averages can be read off. Buckets are spaced by
+ * powers of two, each split into eight, so a value is placed within an
+ * eighth of itself whatever its size, using a fixed number of counters
+ * and no objects per measurement. Counters are atomic, so measurements
+ * can come from many threads at once.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class HistogramMetrics implements Metrics
+{
+    /**
+     * Constants
+     */
+    private static final int SUB_BUCKETS = 8; //buckets per power of two
+    private static final int BUCKETS = SUB_BUCKETS + 61 * SUB_BUCKETS; //enough for any long
+
+    /**
+     * Instance variables
+     */
+    private final AtomicLongArray counts; //stores the count in each bucket, BUCKETS per metric
+    private final AtomicLongArray totals; //stores the sum of the values of each metric
+    private final AtomicLongArray maxima; //stores the largest value of each metric
+
+    /**
+     * Default constructor; creates empty histograms.
+     */
+    public HistogramMetrics()
+    {
+        counts = new AtomicLongArray(COUNT * BUCKETS);
+        totals = new AtomicLongArray(COUNT);
+        maxima = new AtomicLongArray(COUNT);
+    }
+
+    /**
+     * Records a measurement.
+     * @param metric one of the metric constants
+     * @param value the value measured
+     * @postcondition the value has been added to the metric's histogram.
+     */
+    public void record(int metric, long value)
+    {
+        counts.incrementAndGet(metric * BUCKETS + bucket(value));
+        totals.addAndGet(metric, value);
+        long max = maxima.get(metric);
+        while(value>max && !maxima.compareAndSet(metric, max, value))
+        {
+            max = maxima.get(metric);
+        }
+    }
+
+    /**
+     * Gets the number of measurements of a metric.
+     * @param metric one of the metric constants
+     * @return the number of measurements.
+     */
+    public long getCount(int metric)
+    {
+        long count = 0;
+        for(int i = 0; i<BUCKETS; i++)
+        {
+            count += counts.get(metric * BUCKETS + i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the sum of the measurements of a metric.
+     * @param metric one of the metric constants
+     * @return the sum of the values.
+     */
+    public long getTotal(int metric)
+    {
+        return totals.get(metric);
+    }
+
+    /**
+     * Gets the average of the measurements of a metric.
+     * @param metric one of the metric constants
+     * @return the mean value, or 0 if there are no measurements.
+     */
+    public double getMean(int metric)
+    {
+        long count = getCount(metric);
+        return count==0 ? 0 : (double)totals.get(metric) / count;
+    }
+
+    /**
+     * Gets the largest measurement of a metric.
+     * @param metric one of the metric constants
+     * @return the largest value, or 0 if there are no measurements.
+     */
+    public long getMax(int metric)
+    {
+        return maxima.get(metric);
+    }
+
+    /**
+     * Gets a percentile of the measurements of a metric.
+     * @param metric one of the metric constants
+     * @param percentile the percentile, between 0 and 100
+     * @return the top of the bucket the percentile falls in, which is
+     *         within an eighth of the true value, or 0 if there are no
+     *         measurements.
+     */
+    public long getPercentile(int metric, double percentile)
+    {
+        long count = getCount(metric);
+        long rank = (long)Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for(int i = 0; i<BUCKETS; i++)
+        {
+            seen += counts.get(metric * BUCKETS + i);
+            if(seen>=rank && seen>0)
+            {
+                return Math.min(lowest(i + 1) - 1, maxima.get(metric));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes every measurement.
+     * @postcondition the histograms are empty.
+     */
+    public void clear()
+    {
+        for(int i = 0; i<counts.length(); i++)
+        {
+            counts.set(i, 0);
+        }
+        for(int i = 0; i<COUNT; i++)
+        {
+            totals.set(i, 0);
+            maxima.set(i, 0);
+        }
+    }
+
+    /**
+     * Describes every metric that has been measured.
+     * @return a line per metric with its count, mean, median, 99th
+     *         percentile and largest value.
+     */
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        for(int metric = 0; metric<COUNT; metric++)
+        {
+            long count = getCount(metric);
+            if(count>0)
+            {
+                text.append(NAMES[metric]).append(": count ").append(count)
+                    .append("  mean ").append((long)getMean(metric))
+                    .append("  p50 ").append(getPercentile(metric, 50))
+                    .append("  p99 ").append(getPercentile(metric, 99))
+                    .append("  max ").append(getMax(metric)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Finds the bucket a value goes in.
+     * @param value a value
+     * @return the index of the bucket.
+     */
+    private static int bucket(long value)
+    {
+        if(value<SUB_BUCKETS)
+        {
+            return (int)Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return SUB_BUCKETS + (exponent - 3) * SUB_BUCKETS + (int)(value >>> (exponent - 3) & SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Finds the smallest value that goes in a bucket.
+     * @param bucket the index of a bucket
+     * @return the smallest value of the bucket.
+     */
+    private static long lowest(int bucket)
+    {
+        if(bucket<SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        if(bucket>=BUCKETS)
+        {
+            return Long.MAX_VALUE;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 3;
+        return (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 3);
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * The Metrics interface receives measurements from the game: how long
+ * clicks take to handle and to paint, how long painting and loading the
+ * card images take, how long and how many moves headless games take, and
+ * how long games hosted by a SessionHost take to answer commands.
+ * Each measurement is one of the metric constants and a value, so that
+ * recording one makes no objects. The implementation in use is set with
+ * Telemetry.setMetrics; by default measurements are thrown away.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public interface Metrics
+{
+    /**
+     * Metrics
+     */
+    int CLICK_TO_HANDLED = 0; //nanoseconds from a click to the end of handling it
+    int HANDLED_TO_PAINTED = 1; //nanoseconds from handling a click to painting its result
+    int PAINT = 2; //nanoseconds one call to paintComponent takes
+    int IMAGE_LOAD = 3; //nanoseconds loading the card images takes
+    int MOVES_PER_GAME = 4; //moves made in one headless game
+    int GAME_TIME = 5; //nanoseconds one headless game takes
+    int COMMAND_LATENCY = 6; //nanoseconds from sending a command to a hosted game to its reply
+    int COUNT = 7; //the number of metrics
+
+    //the name of each metric, for printing
+    String[] NAMES = { "click to handled ns", "handled to painted ns", "paint ns", "image load ns",
+                       "moves per game", "game ns", "command latency ns" };
+
+    //a Metrics that throws every measurement away
+    Metrics NONE = new Metrics() {
+        public void record(int metric, long value)
+        {
+        }
+    };
+
+    /**
+     * Records a measurement. It may be called from many threads at once.
+     * @param metric one of the metric constants
+     * @param value the value measured
+     */
+    void record(int metric, long value);
+}
@@ -0,0 +1,101 @@
+import java.util.*;
+/**
+ * The MoveJournal class keeps the moves made in a game so that they can be
+ * taken back and made again. Each move is one int from the Moves class,
+ * which holds where the cards came from, where they went, how many there
+ * were and, for a turned over card, which pile it was in; no copies of the
+ * game are kept, so a long game takes only a few kilobytes.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class MoveJournal
+{
+    /**
+     * Instance variables
+     */
+    private int[] moves; //stores the moves made, oldest first
+    private int size; //stores the number of moves that can be made again
+    private int position; //stores the number of moves currently made
+
+    /**
+     * Default constructor; creates an empty journal.
+     */
+    public MoveJournal()
+    {
+        moves = new int[64];
+    }
+
+    /**
+     * Records a move that has just been made.
+     * @param move a move
+     * @postcondition the move can be taken back, and the moves that had
+     *                been taken back can no longer be made again.
+     */
+    public void record(int move)
+    {
+        if(position==moves.length)
+        {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[position++] = move;
+        size = position;
+    }
+
+    /**
+     * Takes the last move out of the journal so it can be undone.
+     * @postcondition the move can be made again with redo.
+     * @return the last move made, or Moves.NONE if there isn't one.
+     */
+    public int undo()
+    {
+        if(position==0)
+        {
+            return Moves.NONE;
+        }
+        return moves[--position];
+    }
+
+    /**
+     * Puts back the last move taken out of the journal so it can be redone.
+     * @postcondition the move can be taken back again with undo.
+     * @return the move to make again, or Moves.NONE if there isn't one.
+     */
+    public int redo()
+    {
+        if(position==size)
+        {
+            return Moves.NONE;
+        }
+        return moves[position++];
+    }
+
+    /**
+     * Gets the number of moves currently made.
+     * @return the number of moves that can be taken back.
+     */
+    public int size()
+    {
+        return position;
+    }
+
+    /**
+     * Gets one of the moves currently made.
+     * @param index the index of the move, 0 being the first move of the game
+     * @precondition index is less than size().
+     * @return the move.
+     */
+    public int get(int index)
+    {
+        return moves[index];
+    }
+
+    /**
+     * Removes every move from the journal.
+     * @postcondition the journal is empty.
+     */
+    public void clear()
+    {
+        size = 0;
+        position = 0;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The Moves class codes a move of Solitaire as a single int, so that lists
+ * of moves can be kept in plain int arrays. A move holds its type, where
+ * it comes from, where it goes and how many cards it moves; that is
+ * everything GameState needs to make the move and to take it back.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class Moves
+{
+    /**
+     * Constants
+     */
+    public static final int NONE = -1; //stands for no move
+    public static final int DRAW = 0; //deals up to three cards from the stock onto the waste
+    public static final int RESET = 1; //turns the waste back over into the stock
+    public static final int WASTE_TO_PILE = 2;
+    public static final int WASTE_TO_FOUNDATION = 3;
+    public static final int PILE_TO_FOUNDATION = 4;
+    public static final int PILE_TO_PILE = 5;
+    public static final int TURN_OVER = 6; //turns up the top card of a pile
+    public static final int MAX_MOVES = 128; //more than the legal moves in any position
+
+    /**
+     * Makes a move.
+     * @param type the type of the move, such as PILE_TO_PILE
+     * @param from the pile the move comes from, or 0 if it doesn't come from a pile
+     * @param to the pile or foundation the move goes to, or 0 if neither
+     * @param count the number of cards moved
+     * @return the move.
+     */
+    public static int make(int type, int from, int to, int count)
+    {
+        return type | from << 4 | to << 8 | count << 12;
+    }
+
+    /**
+     * Gets the type of a move.
+     * @param move a move
+     * @return the type of the move.
+     */
+    public static int type(int move)
+    {
+        return move & 15;
+    }
+
+    /**
+     * Gets the pile a move comes from.
+     * @param move a move
+     * @return the index of the pile.
+     */
+    public static int from(int move)
+    {
+        return move >>> 4 & 15;
+    }
+
+    /**
+     * Gets the pile or foundation a move goes to.
+     * @param move a move
+     * @return the index of the pile or foundation.
+     */
+    public static int to(int move)
+    {
+        return move >>> 8 & 15;
+    }
+
+    /**
+     * Gets the number of cards a move moves.
+     * @param move a move
+     * @return the number of cards.
+     */
+    public static int count(int move)
+    {
+        return move >>> 12 & 63;
+    }
+
+    /**
+     * Describes a move.
+     * @param move a move
+     * @return a description of the move, such as "pile 2 to pile 5 (3 cards)".
+     */
+    public static String toString(int move)
+    {
+        switch(type(move))
+        {
+            case DRAW:
+                return "draw " + count(move);
+            case RESET:
+                return "reset stock";
+            case WASTE_TO_PILE:
+                return "waste to pile " + to(move);
+            case WASTE_TO_FOUNDATION:
+                return "waste to foundation " + to(move);
+            case PILE_TO_FOUNDATION:
+                return "pile " + from(move) + " to foundation " + to(move);
+            case PILE_TO_PILE:
+                return "pile " + from(move) + " to pile " + to(move) + " (" + count(move) + " cards)";
+            case TURN_OVER:
+                return "turn over pile " + from(move);
+            default:
+                return "no move";
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+/**
+ * The OffHeapPositionStore class is a PositionStore kept outside the Java
+ * heap, so that a store of many gigabytes adds nothing to the work of the
+ * garbage collector. It is given a memory budget rather than a size, and
+ * uses the largest power of two of 8 byte slots that fits. The slots are
+ * kept in direct buffers or, for stores bigger than memory, in a file
+ * mapped into memory, 1 GB per buffer. Positions are placed by open
+ * addressing; when the slots probed are all taken, the replacement policy
+ * picks the position to forget. Each slot holds the top bits of the hash,
+ * the depth the position was seen at and the generation of the store, a
+ * number that goes up each time it is cleared. Slots of an older
+ * generation count as empty, so clearing the store takes no time.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class OffHeapPositionStore implements PositionStore, Closeable
+{
+    /**
+     * Constants
+     */
+    public static final int REPLACE_FIRST = 0; //a new position takes the place of the first one probed
+    public static final int REPLACE_DEEPEST = 1; //a new position takes the place of the deepest one probed
+    public static final int SLOT_BYTES = 8;
+    private static final int PROBES = 8; //slots looked at before a position is replaced
+    private static final int SEGMENT_BITS = 27; //each buffer holds 2 to the power 27 slots, 1 GB
+    private static final int DEPTH_BITS = 10; //bits of a slot holding the depth
+    private static final int GENERATION_BITS = 6; //bits of a slot holding the generation
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+    private static final long GENERATION_MASK = (1L << GENERATION_BITS) - 1 << DEPTH_BITS;
+    private static final long KEY_MASK = -1L << DEPTH_BITS + GENERATION_BITS;
+
+    /**
+     * Instance variables
+     */
+    private final ByteBuffer[] segments; //stores the slots, 0 meaning an empty slot
+    private final long mask; //stores the number of slots minus one
+    private final int policy; //stores which position is forgotten when the probed slots are full
+    private final FileChannel channel; //stores the file the slots are mapped from, or null
+    private long generation; //stores the generation of the positions in the store, from 1
+    private long size; //stores the number of positions in the store
+
+    /**
+     * Constructor with parameters; creates an empty store in direct buffers.
+     * @param budgetBytes the most memory the store may use
+     * @param initPolicy REPLACE_FIRST or REPLACE_DEEPEST
+     * @throws IllegalArgumentException if the budget is too small for a
+     *         few slots or the policy isn't known
+     */
+    public OffHeapPositionStore(long budgetBytes, int initPolicy)
+    {
+        this(slots(budgetBytes, initPolicy), initPolicy, (FileChannel)null);
+        for(int i = 0; i<segments.length; i++)
+        {
+            segments[i] = ByteBuffer.allocateDirect((int)segmentBytes()).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Constructor with parameters; creates an empty store in a file mapped
+     * into memory. Whatever the file held is thrown away, and the operating
+     * system only gives it disk space as slots are written.
+     * @param budgetBytes the size of the file
+     * @param initPolicy REPLACE_FIRST or REPLACE_DEEPEST
+     * @param file the file
+     * @throws IllegalArgumentException if the budget is too small for a
+     *         few slots or the policy isn't known
+     * @throws IOException if the file can't be created or mapped
+     */
+    public OffHeapPositionStore(long budgetBytes, int initPolicy, Path file) throws IOException
+    {
+        this(slots(budgetBytes, initPolicy), initPolicy,
+             FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                              StandardOpenOption.TRUNCATE_EXISTING));
+        try
+        {
+            for(int i = 0; i<segments.length; i++)
+            {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes(), segmentBytes())
+                              .order(ByteOrder.nativeOrder());
+            }
+        }
+        catch(IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Constructor with parameters; initializes instance variables, leaving
+     * the buffers to be made.
+     * @param slots the number of slots, a power of two
+     * @param initPolicy REPLACE_FIRST or REPLACE_DEEPEST
+     * @param initChannel the file the buffers are mapped from, or null
+     */
+    private OffHeapPositionStore(long slots, int initPolicy, FileChannel initChannel)
+    {
+        mask = slots - 1;
+        policy = initPolicy;
+        channel = initChannel;
+        segments = new ByteBuffer[(int)Math.max(slots >>> SEGMENT_BITS, 1)];
+        generation = 1;
+    }
+
+    /**
+     * Works out how many slots fit in a budget.
+     * @param budgetBytes the most memory the store may use
+     * @param policy the replacement policy, which is checked
+     * @return the largest power of two of slots that fits.
+     * @throws IllegalArgumentException if the budget is too small for a
+     *         few slots or the policy isn't known
+     */
+    private static long slots(long budgetBytes, int policy)
+    {
+        if(budgetBytes<PROBES * SLOT_BYTES)
+        {
+            throw new IllegalArgumentException("budget of " + budgetBytes + " bytes is too small");
+        }
+        if(policy!=REPLACE_FIRST && policy!=REPLACE_DEEPEST)
+        {
+            throw new IllegalArgumentException("unknown replacement policy " + policy);
+        }
+        return Long.highestOneBit(budgetBytes / SLOT_BYTES);
+    }
+
+    /**
+     * Gets the size of each buffer.
+     * @return the number of bytes in each buffer.
+     */
+    private long segmentBytes()
+    {
+        return (mask + 1) / segments.length * SLOT_BYTES;
+    }
+
+    /**
+     * Fills a store twice over with random positions under each
+     * replacement policy, and prints how fast positions are added and how
+     * long clearing takes.
+     * @param args the budget in megabytes, optionally followed by a file
+     *             to map the store from
+     * @postcondition the rates have been printed.
+     * @throws IOException if the file can't be mapped
+     */
+    public static void main(String[] args) throws IOException
+    {
+        long budget = (args.length>0 ? Long.parseLong(args[0]) : 64) << 20;
+        Path file = args.length>1 ? Paths.get(args[1]) : null;
+        for(int policy = REPLACE_FIRST; policy<=REPLACE_DEEPEST; policy++)
+        {
+            OffHeapPositionStore store = file==null ? new OffHeapPositionStore(budget, policy)
+                                         : new OffHeapPositionStore(budget, policy, file);
+            SplittableRandom random = new SplittableRandom(1);
+            long adds = store.getCapacity() * 2;
+            long begin = System.nanoTime();
+            for(long i = 0; i<adds; i++)
+            {
+                store.add(random.nextLong(), (int)(i % Solver.MAX_DEPTH));
+            }
+            long nanos = System.nanoTime() - begin;
+            System.out.println((policy==REPLACE_FIRST ? "Replace first:   " : "Replace deepest: ")
+                               + store.getCapacity() + " slots  " + adds * 1000000000L / nanos + " adds/s  "
+                               + store.size() + " in empty slots");
+            begin = System.nanoTime();
+            store.clear();
+            System.out.println("Clear: " + (System.nanoTime() - begin) + " ns");
+            store.close();
+        }
+    }
+
+    /**
+     * Adds a position to the store.
+     * @param hash the hash of the position
+     * @param depth the number of moves from the start of the search to the position
+     * @postcondition the position is in the store, possibly in place of another.
+     * @return true if the position wasn't already in the store, false if it was.
+     */
+    public boolean add(long hash, int depth)
+    {
+        long key = hash & KEY_MASK;
+        if(key==0)
+        {
+            key = KEY_MASK & -KEY_MASK;
+        }
+        long tag = generation << DEPTH_BITS;
+        long entry = key | tag | Math.min(depth, DEPTH_MASK);
+        long start = (hash ^ hash >>> 29) & mask;
+        long victim = start;
+        long victimDepth = -1;
+        for(int i = 0; i<PROBES; i++)
+        {
+            long slot = start + i & mask;
+            long word = get(slot);
+            if((word & GENERATION_MASK)!=tag)
+            {
+                put(slot, entry);
+                size++;
+                return true;
+            }
+            if((word & KEY_MASK)==key)
+            {
+                return false;
+            }
+            if(policy==REPLACE_DEEPEST && (word & DEPTH_MASK)>victimDepth)
+            {
+                victim = slot;
+                victimDepth = word & DEPTH_MASK;
+            }
+        }
+        put(victim, entry);
+        return true;
+    }
+
+    /**
+     * Gets the number of positions in the store.
+     * @return the number of positions added since the store was last cleared.
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the number of positions the store can hold.
+     * @return the number of slots.
+     */
+    public long getCapacity()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * Removes every position from the store by starting a new generation.
+     * The slots are only really wiped once all 2^GENERATION_BITS - 1
+     * generation tags have been used.
+     * @postcondition the store is empty.
+     */
+    public void clear()
+    {
+        if(size==0)
+        {
+            return;
+        }
+        size = 0;
+        if(++generation==1L << GENERATION_BITS)
+        {
+            for(ByteBuffer segment : segments)
+            {
+                for(int i = 0; i<segment.capacity(); i += SLOT_BYTES)
+                {
+                    segment.putLong(i, 0L);
+                }
+            }
+            generation = 1;
+        }
+    }
+
+    /**
+     * Closes the file the store is mapped from, if there is one. The memory
+     * of the buffers is given back once they are garbage collected.
+     * @postcondition the store must no longer be used.
+     */
+    public void close()
+    {
+        if(channel!=null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch(IOException e)
+            {
+                //the mapping stays usable until it is collected
+            }
+        }
+    }
+
+    /**
+     * Reads a slot.
+     * @param slot the index of the slot
+     * @return the contents of the slot.
+     */
+    private long get(long slot)
+    {
+        return segments[(int)(slot >>> SEGMENT_BITS)].getLong((int)(slot & (1L << SEGMENT_BITS) - 1) * SLOT_BYTES);
+    }
+
+    /**
+     * Writes a slot.
+     * @param slot the index of the slot
+     * @param word the new contents of the slot
+     */
+    private void put(long slot, long word)
+    {
+        segments[(int)(slot >>> SEGMENT_BITS)].putLong((int)(slot & (1L << SEGMENT_BITS) - 1) * SLOT_BYTES, word);
+    }
+}
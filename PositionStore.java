@@ -0,0 +1,32 @@
+/**
+ * The PositionStore interface remembers which positions a search has
+ * already seen, by their hashes. A store has a fixed capacity chosen when
+ * it is made; when it is full it forgets positions to make room, which
+ * only means they may be searched again, so a search never needs more
+ * memory than its store was given.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public interface PositionStore
+{
+    /**
+     * Adds a position to the store.
+     * @param hash the hash of the position
+     * @param depth the number of moves from the start of the search to the position
+     * @postcondition the position is in the store, possibly in place of another.
+     * @return true if the position wasn't already in the store, false if it was.
+     */
+    boolean add(long hash, int depth);
+
+    /**
+     * Gets the number of positions in the store.
+     * @return the number of positions added since the store was last cleared.
+     */
+    long size();
+
+    /**
+     * Removes every position from the store.
+     * @postcondition the store is empty.
+     */
+    void clear();
+}
@@ -0,0 +1,95 @@
+/**
+ * The Rules class holds the rules for which card may go on which, worked
+ * out once for every pair of cards so that checking a move is a single
+ * bit test rather than comparing ranks and colours. Sets of cards are
+ * longs with bit c set for the card with code c, so the cards a pile or
+ * foundation will take can be tested against any card, or against a set
+ * of cards, at once.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public final class Rules
+{
+    /**
+     * Constants
+     */
+    public static final long ALL_CARDS = (1L << 52) - 1;
+    public static final long ACES = 1L | 1L << 13 | 1L << 26 | 1L << 39; //the cards an empty foundation takes
+    public static final long KINGS = ACES << 12; //the cards an empty pile takes
+
+    //stores, for each card, the cards that can be put on it in a pile:
+    //one rank lower and of the other colour
+    private static final long[] STACKS_ON = new long[52];
+
+    //stores, for each card, the card that goes on it on a foundation, or
+    //no cards for a king
+    private static final long[] SUCCESSORS = new long[52];
+
+    static
+    {
+        for(int card = 0; card<52; card++)
+        {
+            for(int other = 0; other<52; other++)
+            {
+                if(GameState.rank(other) + 1==GameState.rank(card)
+                   && GameState.isRed(other)!=GameState.isRed(card))
+                {
+                    STACKS_ON[card] |= 1L << other;
+                }
+            }
+            if(GameState.rank(card)<13)
+            {
+                SUCCESSORS[card] = 1L << card + 1;
+            }
+        }
+    }
+
+    /**
+     * Constructor; there are no Rules objects.
+     */
+    private Rules()
+    {
+    }
+
+    /**
+     * Gets the cards that can be put on top of a pile.
+     * @param top the top card of the pile, or GameState.NO_CARD if it is empty
+     * @return the set of cards the pile takes.
+     */
+    public static long pileAccepts(int top)
+    {
+        return top==GameState.NO_CARD ? KINGS : STACKS_ON[top];
+    }
+
+    /**
+     * Gets the cards that can be put on top of a foundation.
+     * @param top the top card of the foundation, or GameState.NO_CARD if it is empty
+     * @return the set of cards the foundation takes.
+     */
+    public static long foundationAccepts(int top)
+    {
+        return top==GameState.NO_CARD ? ACES : SUCCESSORS[top];
+    }
+
+    /**
+     * Checks whether a card can be put on another in a pile.
+     * @param card a card code
+     * @param onto the code of the card it would go on
+     * @return true if card is one rank lower than onto and of the other colour.
+     */
+    public static boolean canStack(int card, int onto)
+    {
+        return (STACKS_ON[onto] >>> card & 1)!=0;
+    }
+
+    /**
+     * Checks whether a card is in a set of cards.
+     * @param cards a set of cards
+     * @param card a card code
+     * @return true if the card is in the set.
+     */
+    public static boolean contains(long cards, int card)
+    {
+        return (cards >>> card & 1)!=0;
+    }
+}
@@ -0,0 +1,529 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+/**
+ * The SessionHost class runs many games at once in one program, for
+ * example behind a web front end. Each game is a session, a headless
+ * Solitaire with no window, and the commands sent to a session are
+ * handled one at a time in the order they arrive: each session is an
+ * actor with a queue of its own, run on a small shared pool of threads
+ * only while it has commands waiting, so that an idle session takes no
+ * thread and there is no locking around a game. Sessions that haven't
+ * been used for a while are evicted: saved as a Snapshot to a
+ * SnapshotStore and dropped from memory, to be restored the next time a
+ * command comes. Moves made before an eviction can't be undone after it.
+ * The time from sending each command to its reply is recorded as the
+ * COMMAND_LATENCY metric.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class SessionHost
+{
+    /**
+     * Commands other than moves, which are sent as Moves ints; they are
+     * the commands of a GameActor
+     */
+    public static final int VIEW = GameActor.VIEW; //changes nothing, only gets the state
+    public static final int UNDO = GameActor.UNDO;
+    public static final int REDO = GameActor.REDO;
+    public static final int AUTO_PLAY = GameActor.AUTO_PLAY;
+    public static final int CLICK_STOCK = GameActor.CLICK_STOCK;
+    public static final int CLICK_WASTE = GameActor.CLICK_WASTE;
+
+    /**
+     * Constants
+     */
+    private static final int BATCH = 64; //most commands a session handles before letting others run
+
+    /**
+     * The SnapshotStore interface keeps evicted sessions. It is called
+     * from many threads at once.
+     */
+    public interface SnapshotStore
+    {
+        /**
+         * Keeps the snapshot of a session, replacing any kept before.
+         * @param session the id of the session
+         * @param snapshot the snapshot
+         */
+        void save(long session, byte[] snapshot);
+
+        /**
+         * Gets the snapshot of a session, which is kept until it is removed.
+         * @param session the id of the session
+         * @return the snapshot, or null if there isn't one.
+         */
+        byte[] get(long session);
+
+        /**
+         * Forgets the snapshot of a session.
+         * @param session the id of the session
+         */
+        void remove(long session);
+    }
+
+    /**
+     * The MemoryStore class is a SnapshotStore that keeps snapshots in a
+     * map, which takes far less memory than the sessions themselves.
+     */
+    public static class MemoryStore implements SnapshotStore
+    {
+        private final ConcurrentHashMap<Long, byte[]> snapshots = new ConcurrentHashMap<Long, byte[]>();
+
+        public void save(long session, byte[] snapshot)
+        {
+            snapshots.put(session, snapshot);
+        }
+
+        public byte[] get(long session)
+        {
+            return snapshots.get(session);
+        }
+
+        public void remove(long session)
+        {
+            snapshots.remove(session);
+        }
+
+        /**
+         * Gets the number of snapshots kept.
+         * @return the number of evicted sessions.
+         */
+        public int size()
+        {
+            return snapshots.size();
+        }
+    }
+
+    /**
+     * Instance variables
+     */
+    private final ConcurrentHashMap<Long, Session> sessions; //stores the sessions in memory, by id
+    private final SnapshotStore store; //stores the evicted sessions
+    private final ForkJoinPool pool; //stores the threads that run the sessions
+    private final ScheduledExecutorService evictor; //stores the thread that looks for idle sessions
+    private final AtomicLong nextId; //stores the id of the next session opened
+    private final AtomicLong evictions; //stores the number of sessions evicted
+    private final long idleNanos; //stores how long a session can go unused before it is evicted
+
+    /**
+     * Constructor with parameters; starts the threads.
+     * @param threads the number of threads that run sessions
+     * @param store where evicted sessions are kept
+     * @param idleMillis how long a session can go unused before it is evicted
+     */
+    public SessionHost(int threads, SnapshotStore store, long idleMillis)
+    {
+        sessions = new ConcurrentHashMap<Long, Session>();
+        this.store = store;
+        pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        nextId = new AtomicLong();
+        evictions = new AtomicLong();
+        idleNanos = idleMillis * 1000000L;
+        long period = Math.max(idleMillis / 4, 1);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run()
+            {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hosts many sessions, sends them commands and prints how much memory
+     * a session takes and how long commands take to answer.
+     * @param args the number of sessions, optionally followed by the
+     *             number of commands and the number of threads
+     * @postcondition the results have been printed.
+     * @throws InterruptedException if interrupted while waiting for replies
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int count = args.length>0 ? Integer.parseInt(args[0]) : 100000;
+        int commands = args.length>1 ? Integer.parseInt(args[1]) : 1000000;
+        int threads = args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        MemoryStore store = new MemoryStore();
+        SessionHost host = new SessionHost(threads, store, 2000);
+
+        long before = usedMemory();
+        long[] ids = new long[count];
+        for(int i = 0; i<count; i++)
+        {
+            ids[i] = host.open(i);
+        }
+        long after = usedMemory();
+        System.out.println("Sessions: " + count + "  bytes per session: " + (after - before) / count);
+
+        HistogramMetrics latency = new HistogramMetrics();
+        Telemetry.setMetrics(latency);
+        //drawing from the stock is the commonest command, so it comes up twice
+        final int[] mix = { CLICK_STOCK, CLICK_STOCK, AUTO_PLAY, clickPile(3), UNDO, REDO, VIEW };
+        final Semaphore inFlight = new Semaphore(256);
+        Random random = new Random(1);
+        long begin = System.nanoTime();
+        for(int i = 0; i<commands; i++)
+        {
+            inFlight.acquire();
+            host.submit(ids[random.nextInt(count)], mix[random.nextInt(mix.length)]).whenComplete(
+                new java.util.function.BiConsumer<GameState, Throwable>() {
+                    public void accept(GameState state, Throwable error)
+                    {
+                        inFlight.release();
+                    }
+                });
+        }
+        inFlight.acquire(256);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println("Commands per second: " + (long)(commands / seconds));
+        System.out.print(latency);
+
+        Thread.sleep(3000);
+        System.out.println("Evicted: " + host.getEvictions() + "  in memory: " + host.size()
+                           + "  bytes per session: " + (usedMemory() - before) / count);
+        host.shutdown();
+    }
+
+    /**
+     * Makes the command for clicking a foundation.
+     * @param index the index of the foundation
+     * @return the command.
+     */
+    public static int clickFoundation(int index)
+    {
+        return GameActor.clickFoundation(index);
+    }
+
+    /**
+     * Makes the command for clicking a pile.
+     * @param index the index of the pile
+     * @return the command.
+     */
+    public static int clickPile(int index)
+    {
+        return GameActor.clickPile(index);
+    }
+
+    /**
+     * Starts a new session.
+     * @param dealNumber the number of the deal to play
+     * @return the id of the session.
+     */
+    public long open(long dealNumber)
+    {
+        long id = nextId.getAndIncrement();
+        sessions.put(id, new Session(id, new Solitaire(dealNumber)));
+        return id;
+    }
+
+    /**
+     * Ends a session, whether it is in memory or evicted. The session's
+     * entry is dropped and its snapshot removed while the map holds the
+     * id, as an eviction or a restore does, so a snapshot can't be saved
+     * after the session has been closed.
+     * @param id the id of the session
+     * @postcondition the session is gone.
+     */
+    public void close(final long id)
+    {
+        sessions.compute(id, new java.util.function.BiFunction<Long, Session, Session>() {
+            public Session apply(Long key, Session session)
+            {
+                store.remove(id);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Sends a command to a session, restoring the session if it was evicted.
+     * @param id the id of the session
+     * @param command a move, or one of the other commands
+     * @return the state of the game after the command, once it has been handled.
+     */
+    public CompletableFuture<GameState> submit(long id, int command)
+    {
+        CompletableFuture<GameState> reply = new CompletableFuture<GameState>();
+        deliver(id, new Command(command, reply));
+        return reply;
+    }
+
+    /**
+     * Gets the number of sessions in memory.
+     * @return the number of sessions not evicted.
+     */
+    public int size()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * Gets the number of times a session has been evicted.
+     * @return the number of evictions.
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Stops the threads.
+     * @postcondition no more commands are handled.
+     */
+    public void shutdown()
+    {
+        evictor.shutdownNow();
+        pool.shutdown();
+    }
+
+    /**
+     * Sends a command to a session, restoring the session if it was evicted.
+     * @param id the id of the session
+     * @param command the command
+     * @postcondition the command is in the session's queue, or its reply
+     *                has failed if there is no such session or it couldn't
+     *                be restored.
+     */
+    private void deliver(long id, Command command)
+    {
+        Session session;
+        try
+        {
+            session = find(id);
+        }
+        catch(RuntimeException e)
+        {
+            command.reply.completeExceptionally(e);
+            return;
+        }
+        if(session==null)
+        {
+            command.reply.completeExceptionally(new IllegalArgumentException("no session " + id));
+        }
+        else
+        {
+            session.send(command);
+        }
+    }
+
+    /**
+     * Gets a session, restoring it from the store if it was evicted. The
+     * snapshot is only removed from the store once the session has been
+     * restored, so a snapshot that can't be restored isn't lost.
+     * @param id the id of the session
+     * @return the session, or null if there isn't one with the id.
+     * @throws UncheckedIOException if the snapshot can't be restored
+     */
+    private Session find(final long id)
+    {
+        Session session = sessions.get(id);
+        if(session!=null)
+        {
+            return session;
+        }
+        return sessions.computeIfAbsent(id, new java.util.function.Function<Long, Session>() {
+            public Session apply(Long key)
+            {
+                byte[] snapshot = store.get(id);
+                if(snapshot==null)
+                {
+                    return null;
+                }
+                try
+                {
+                    Session restored = new Session(id, Snapshot.fromBytes(snapshot).toGame());
+                    store.remove(id);
+                    return restored;
+                }
+                catch(IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks every session that hasn't been used for a while to evict itself.
+     * The session does it on its own thread, between commands.
+     * @postcondition the idle sessions have been sent an eviction.
+     */
+    private void evictIdle()
+    {
+        long now = System.nanoTime();
+        for(Session session : sessions.values())
+        {
+            if(now - session.lastUsed>idleNanos)
+            {
+                session.send(Command.EVICT);
+            }
+        }
+    }
+
+    /**
+     * Measures the memory in use after collecting garbage.
+     * @return the number of bytes in use.
+     */
+    private static long usedMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i<3; i++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The Command class is a command waiting for a session, with where its reply goes.
+     */
+    private static class Command
+    {
+        private static final Command EVICT = new Command(0, null); //tells a session to evict itself
+
+        private final int command; //stores the move or other command
+        private final CompletableFuture<GameState> reply; //stores where the reply goes
+        private final long sent; //stores when the command was sent
+
+        Command(int initCommand, CompletableFuture<GameState> initReply)
+        {
+            command = initCommand;
+            reply = initReply;
+            sent = System.nanoTime();
+        }
+    }
+
+    /**
+     * The Session class is one hosted game and the commands waiting for
+     * it. It runs on the pool whenever it has commands, and only one
+     * thread runs it at a time.
+     */
+    private class Session implements Runnable
+    {
+        private final long id; //stores the id of the session
+        private final Solitaire game; //stores the game
+        private final ConcurrentLinkedQueue<Command> queue; //stores the commands waiting
+        private final AtomicBoolean scheduled; //stores whether the session is on the pool
+        private volatile long lastUsed; //stores when the last command came
+        private boolean evicted; //stores whether the session has been saved and dropped
+
+        Session(long initId, Solitaire initGame)
+        {
+            id = initId;
+            game = initGame;
+            queue = new ConcurrentLinkedQueue<Command>();
+            scheduled = new AtomicBoolean();
+            lastUsed = System.nanoTime();
+        }
+
+        /**
+         * Adds a command to the queue, putting the session on the pool
+         * if it isn't there already.
+         */
+        void send(Command command)
+        {
+            if(command!=Command.EVICT)
+            {
+                lastUsed = System.nanoTime();
+            }
+            queue.add(command);
+            if(scheduled.compareAndSet(false, true))
+            {
+                pool.execute(this);
+            }
+        }
+
+        public void run()
+        {
+            for(int i = 0; i<BATCH; i++)
+            {
+                Command command = queue.poll();
+                if(command==null)
+                {
+                    break;
+                }
+                if(evicted)
+                {
+                    //the session is gone, so pass the command on to the restored one
+                    if(command!=Command.EVICT)
+                    {
+                        deliver(id, command);
+                    }
+                }
+                else if(command==Command.EVICT)
+                {
+                    evict();
+                }
+                else
+                {
+                    handle(command);
+                }
+            }
+            scheduled.set(false);
+            //a command may have come after the queue was found empty
+            if(!queue.isEmpty() && scheduled.compareAndSet(false, true))
+            {
+                pool.execute(this);
+            }
+        }
+
+        /**
+         * Carries out a command and replies with the state of the game.
+         */
+        private void handle(Command command)
+        {
+            try
+            {
+                GameActor.perform(game, command.command);
+                command.reply.complete(game.getState());
+            }
+            catch(RuntimeException e)
+            {
+                command.reply.completeExceptionally(e);
+            }
+            Telemetry.record(Metrics.COMMAND_LATENCY, System.nanoTime() - command.sent);
+        }
+
+        /**
+         * Saves the session to the store and drops it, unless a command
+         * came since the eviction was asked for. The snapshot is saved
+         * while the map holds the id, and only if the session is still in
+         * the map, so a session closed meanwhile leaves nothing in the store.
+         */
+        private void evict()
+        {
+            if(System.nanoTime() - lastUsed<=idleNanos || !queue.isEmpty())
+            {
+                return;
+            }
+            final byte[] snapshot = new Snapshot(game.getDealNumber(), game.getState(), 0, 0).toBytes();
+            final boolean[] saved = new boolean[1];
+            sessions.computeIfPresent(id, new java.util.function.BiFunction<Long, Session, Session>() {
+                public Session apply(Long key, Session session)
+                {
+                    if(session!=Session.this)
+                    {
+                        return session;
+                    }
+                    store.save(id, snapshot);
+                    saved[0] = true;
+                    return null;
+                }
+            });
+            //closed or not, the session is gone, so later commands are passed on
+            evicted = true;
+            if(saved[0])
+            {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+}
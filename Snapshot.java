@@ -0,0 +1,223 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.*;
+/**
+ * The Snapshot class saves a game in progress so it can be picked up
+ * again later: the deal number, where every card is and which are face
+ * up, and the points and time shown by the display. A snapshot is always
+ * SIZE bytes:
+ * <pre>
+ *   4 bytes      the bytes "SOLS"
+ *   1 byte       the version of the format
+ *   8 bytes      the deal number
+ *   4 bytes      the points
+ *   8 bytes      the milliseconds played
+ *   BYTES bytes  the GameState, as written by GameState.writeTo
+ *   4 bytes      a CRC32 of everything before it
+ * </pre>
+ * It is read back field by field, so restoring one takes a few
+ * microseconds. Files are written under another name first and then
+ * moved into place, so a crash never leaves half a snapshot behind.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class Snapshot
+{
+    /**
+     * Constants
+     */
+    public static final int MAGIC = 0x534F4C53; //"SOLS"
+    public static final int VERSION = 1;
+    public static final int SIZE = 4 + 1 + 8 + 4 + 8 + GameState.BYTES + 4;
+
+    /**
+     * Instance variables
+     */
+    private final long dealNumber; //stores the number the game was dealt from
+    private final GameState state; //stores where the cards are
+    private final int points; //stores the points shown by the display
+    private final long elapsedMillis; //stores how long the game has been played
+
+    /**
+     * Constructor with parameters; initializes instance variables.
+     * @param initDealNumber the number the game was dealt from
+     * @param initState where the cards are, which is copied
+     * @param initPoints the points shown by the display
+     * @param initElapsedMillis how long the game has been played
+     */
+    public Snapshot(long initDealNumber, GameState initState, int initPoints, long initElapsedMillis)
+    {
+        dealNumber = initDealNumber;
+        state = initState.copy();
+        points = initPoints;
+        elapsedMillis = initElapsedMillis;
+    }
+
+    /**
+     * Gets the file games are saved to when the window is closed.
+     * @return the file saved-game in the .solitaire folder of the user's home.
+     */
+    public static Path defaultFile()
+    {
+        return Paths.get(System.getProperty("user.home"), ".solitaire", "saved-game");
+    }
+
+    /**
+     * Reads a snapshot from bytes.
+     * @param bytes the SIZE bytes of a snapshot
+     * @return the snapshot.
+     * @throws IOException if the bytes aren't a snapshot, are from another
+     *         version or have been damaged
+     */
+    public static Snapshot fromBytes(byte[] bytes) throws IOException
+    {
+        if(bytes.length!=SIZE)
+        {
+            throw new IOException("snapshot is " + bytes.length + " bytes, not " + SIZE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(buffer.getInt()!=MAGIC)
+        {
+            throw new IOException("not a snapshot");
+        }
+        int version = buffer.get();
+        if(version!=VERSION)
+        {
+            throw new IOException("snapshot version " + version + " can't be read");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, SIZE - 4);
+        if((int)crc.getValue()!=buffer.getInt(SIZE - 4))
+        {
+            throw new IOException("snapshot is damaged");
+        }
+        long dealNumber = buffer.getLong();
+        int points = buffer.getInt();
+        long elapsedMillis = buffer.getLong();
+        GameState state = new GameState();
+        try
+        {
+            state.readFrom(buffer);
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+        return new Snapshot(dealNumber, state, points, elapsedMillis);
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     * @param file the file
+     * @return the snapshot, or null if the file doesn't exist.
+     * @throws IOException if the file can't be read or isn't a good snapshot
+     */
+    public static Snapshot load(Path file) throws IOException
+    {
+        if(!Files.exists(file))
+        {
+            return null;
+        }
+        return fromBytes(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes the snapshot as bytes.
+     * @return the SIZE bytes of the snapshot.
+     */
+    public byte[] toBytes()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC).put((byte)VERSION).putLong(dealNumber).putInt(points).putLong(elapsedMillis);
+        state.writeTo(buffer);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SIZE - 4);
+        buffer.putInt((int)crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Writes the snapshot to a file, creating its folder if needed. The
+     * snapshot is written to a file beside it, flushed to the disk and
+     * then moved over the old file in one step.
+     * @param file the file
+     * @postcondition the file holds the snapshot.
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path file) throws IOException
+    {
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Path temp = folder.resolve(file.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        finally
+        {
+            channel.close();
+        }
+        try
+        {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Makes the game the snapshot was taken of.
+     * @return a game with the cards where they were, and no moves to undo.
+     */
+    public Solitaire toGame()
+    {
+        return new Solitaire(dealNumber, state);
+    }
+
+    /**
+     * Gets the number the game was dealt from.
+     * @return the deal number.
+     */
+    public long getDealNumber()
+    {
+        return dealNumber;
+    }
+
+    /**
+     * Gets where the cards are.
+     * @return a copy of the game state.
+     */
+    public GameState getState()
+    {
+        return state.copy();
+    }
+
+    /**
+     * Gets the points shown by the display.
+     * @return the points.
+     */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Gets how long the game had been played.
+     * @return the time played in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+}
@@ -1,52 +1,165 @@
+import java.io.*;
+import java.nio.file.*;
 import java.util.*;
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.*;
 /**
  * The Solitaire class defines a game of Solitaire using playing cards.
+ * The game itself is headless; a SolitaireDisplay may be attached to it
+ * as a view, but the rules, the selection and the moves all live here.
+ * A game is not safe to share between threads; a GameActor lets several
+ * drive it at once.
  * @author Russell Yang
  * @version 11/9/17
  */
 public class Solitaire
 {
     /**
-     * Main method; creates a new Solitaire object.
+     * Main method; creates a new Solitaire object and shows it in a window,
+     * or plays games without a display when run as
+     * "Solitaire -headless [games] [archiveFile]", which also records the
+     * games in the archive file if one is given. A deal number may be given
+     * to play that deal again, or "-winnable" given to play a deal taken from
+     * the pool of deals known to be winnable; otherwise the game saved when
+     * the window was last closed is picked up, if there is one.
      * @param args an argument
-     * @postcondition a Solitaire object is created.
+     * @postcondition a Solitaire object is created and displayed, or the
+     *                requested number of headless games have been played.
+     * @throws IOException if the archive file or deal pool can't be used
+     * @throws InterruptedException if interrupted while waiting for a winnable deal
      */
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException, InterruptedException
     {
-        new Solitaire();
+        if(args.length>0 && args[0].equals("-headless"))
+        {
+            int games = 1000;
+            if(args.length>1)
+            {
+                games = Integer.parseInt(args[1]);
+            }
+            HeadlessRunner.run(games, args.length>2 ? Paths.get(args[2]) : null);
+        }
+        else if(args.length>0 && args[0].equals("-winnable"))
+        {
+            final WinnableDealPool pool = openPool(WinnableDealPool.defaultFile());
+            WinnableDealPool.Deal deal = pool.take();
+            while(deal==null)
+            {
+                Thread.sleep(50);
+                deal = pool.take();
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run()
+                {
+                    try
+                    {
+                        pool.close();
+                    }
+                    catch(IOException e)
+                    {
+                        System.err.println("can't save the winnable deals: " + e.getMessage());
+                    }
+                }
+            });
+            new SolitaireDisplay(new Solitaire(deal.getNumber())).showInFrame();
+        }
+        else if(args.length>0)
+        {
+            new SolitaireDisplay(new Solitaire(Long.parseLong(args[0]))).showInFrame();
+        }
+        else
+        {
+            SolitaireDisplay.resume(Snapshot.defaultFile()).showInFrame();
+        }
     }
-    /*
-     * Instance variables
-     */
-    private Stack<Card> stock; //stores the stock Stack of Cards
-    private Stack<Card> waste; //stores the waste Stack of Cards
-    private Stack<Card>[] foundations; //stores the foundations array of Stacks of Cards
-    private Stack<Card>[] piles; //stores the piles array of Stacks of Cards
-    private SolitaireDisplay display; //stores the display mechanism
 
     /**
-     * Default constructor; initializes instance variables.
+     * Opens the pool of winnable deals saved in a file. A file that can't
+     * be read is deleted and the pool starts empty, since its deals can
+     * always be found again.
+     * @param file the file the pool is saved in
+     * @return the pool.
+     * @throws IOException if the file can't be deleted
      */
-    public Solitaire()
+    private static WinnableDealPool openPool(Path file) throws IOException
     {
-        stock = new Stack<Card>();
-        waste = new Stack<Card>();
-        foundations = new Stack[4];
-        for(int i = 0; i<4; i++)
+        try
+        {
+            return new WinnableDealPool(WINNABLE_DEALS, 1, 200000, file);
+        }
+        catch(IOException e)
         {
-            foundations[i] = new Stack<Card>();
+            System.err.println("can't load the winnable deals, starting again: " + e.getMessage());
+            Files.deleteIfExists(file);
+            return new WinnableDealPool(WINNABLE_DEALS, 1, 200000, file);
         }
-        piles = new Stack[7];
-        for(int i = 0; i<7; i++)
+    }
+
+    /*
+     * Constants
+     */
+    private static final long FINISH_NODES = 100000; //most positions searched to finish a game
+    private static final long FINISH_MILLIS = 1000; //most time spent finishing a game
+    private static final int WINNABLE_DEALS = 20; //winnable deals kept ready for -winnable
+
+    //stores a solver for each thread to finish games with, so that games
+    //don't each keep one
+    private static final ThreadLocal<Solver> FINISHERS = new ThreadLocal<Solver>() {
+        protected Solver initialValue()
         {
-            piles[i] = new Stack<Card>();
+            return new Solver(FINISH_NODES, FINISH_MILLIS, 16);
         }
-        display = new SolitaireDisplay(this);
-        createStock();
-        deal();
+    };
+
+    /*
+     * Instance variables
+     */
+    private GameState state; //stores the stock, waste, foundations and piles as card codes
+    private long dealNumber; //stores the number the game was dealt from
+    private MoveJournal journal; //stores the moves made, for undo and redo
+    private long unfinished; //stores the hash of the last position the solver couldn't finish
+    private boolean triedFinish; //stores whether unfinished holds a position
+    private int selectedRow = -1; //stores the row of the selection, -1 if none
+    private int selectedCol = -1; //stores the column of the selection, -1 if none
+
+    /**
+     * Default constructor; deals a game with a random deal number.
+     */
+    public Solitaire()
+    {
+        this(Deals.randomDealNumber());
+    }
+
+    /**
+     * Constructor with parameters; deals the game with the given number,
+     * so that the same number always gives the same game.
+     * @param initDealNumber the number of the deal
+     */
+    public Solitaire(long initDealNumber)
+    {
+        state = new GameState();
+        dealNumber = initDealNumber;
+        journal = new MoveJournal();
+        Deals.deal(dealNumber, state);
+    }
+
+    /**
+     * Constructor with parameters; picks up a game part way through.
+     * @param initDealNumber the number the game was dealt from
+     * @param initState where the cards are, which is copied
+     */
+    public Solitaire(long initDealNumber, GameState initState)
+    {
+        state = initState.copy();
+        dealNumber = initDealNumber;
+        journal = new MoveJournal();
+    }
+
+    /**
+     * Gets the number the game was dealt from.
+     * @return the deal number.
+     */
+    public long getDealNumber()
+    {
+        return dealNumber;
     }
 
     /**
@@ -57,14 +170,7 @@ public class Solitaire
      */
     public Card getStockCard()
     {
-        if(stock.isEmpty())
-        {
-            return null;
-        }
-        else
-        {
-            return stock.peek();
-        }
+        return getCard(state.stockTop());
     }
 
     /**
@@ -75,14 +181,7 @@ public class Solitaire
      */
     public Card getWasteCard()
     {
-        if(waste.isEmpty())
-        {
-            return null;
-        }
-        else
-        {
-            return waste.peek();
-        }
+        return getCard(state.wasteTop());
     }
 
     /**
@@ -95,120 +194,60 @@ public class Solitaire
      */
     public Card getFoundationCard(int index)
     {
-        Stack<Card> temp = foundations[index];
-        if(temp.isEmpty())
-        {
-            return null;
-        }
-        else
-        {
-            return temp.peek();
-        }
+        return getCard(state.foundationTop(index));
     }
 
     /**
-     * Gets the pile at the given index.
+     * Gets the number of cards in the pile at the given index.
      * @param index an index into the piles array
      * @precondition index is valid (between 0 and 6 inclusive).
-     * @return the pile at the given index.
+     * @return the number of cards in the pile.
      */
-    public Stack<Card> getPile(int index)
+    public int getPileSize(int index)
     {
-        return piles[index];
+        return state.pileSize(index);
     }
-    
+
     /**
-     * Creates a stock of cards.
-     * @postcondition a stock of cards is created.
+     * Gets a card in the pile at the given index.
+     * @param index an index into the piles array
+     * @param position a position in the pile, 0 being the bottom card
+     * @precondition index is valid and position is less than the pile size.
+     * @return the Card at the given position.
      */
-    private void createStock()
+    public Card getPileCard(int index, int position)
     {
-        ArrayList<Card> temp = new ArrayList<Card>(52);
-        String suit;
-        for(int rankIndex = 1; rankIndex<=13; rankIndex++)
-        {
-            for(int suitIndex = 1; suitIndex<=4; suitIndex++)
-            {
-                if(suitIndex==1)
-                {
-                    suit = "c";
-                }
-                else if(suitIndex==2)
-                {
-                    suit = "d";
-                }
-                else if(suitIndex==3)
-                {
-                    suit = "h";
-                }
-                else
-                {
-                    suit = "s";
-                }
-                temp.add(new Card(rankIndex, suit));
-            }
-        }
-        int high = 52;
-        while(temp.size()>0)
-        {
-            stock.add(temp.remove((int)(Math.random() * high)));
-            high--;
-        }
+        return getCard(state.pileCard(index, position));
     }
-    
+
     /**
-     * Deals the cards onto the display.
-     * @postcondition all 52 cards have been dealt onto the display.
+     * Checks whether a card in the pile at the given index is face up.
+     * @param index an index into the piles array
+     * @param position a position in the pile, 0 being the bottom card
+     * @precondition index is valid and position is less than the pile size.
+     * @return true if the card is face up, false otherwise.
      */
-    private void deal()
+    public boolean isPileCardFaceUp(int index, int position)
     {
-        for(int i = 0; i<7; i++)
-        {
-            for(int j = 0; j<=i; j++)
-            {
-                if(!stock.isEmpty())
-                {
-                    Card c = stock.remove(0);
-                    if(j==i)
-                    {
-                        c.turnUp();
-                    }
-                    piles[i].add(c);
-                }
-            }
-        }
+        return position>=state.pileFaceDown(index);
     }
 
     /**
-     * Deals three cards onto the waste.
-     * @postcondition three cards have been dealt.
+     * Gets the number of cards left in the stock.
+     * @return the number of cards in the stock.
      */
-    private void dealThreeCards()
+    public int getStockSize()
     {
-        for(int i = 0; i<3; i++)
-        {
-            if(!stock.isEmpty())
-            {
-                Card c = stock.pop();
-                c.turnUp();
-                waste.push(c);
-            }
-        }
+        return state.stockSize();
     }
-    
+
     /**
-     * Resets the stock of cards.
-     * @postcondition the cards from the waste have been
-     *                popped back onto the stock.
+     * Gets the number of cards in the waste.
+     * @return the number of cards in the waste.
      */
-    private void resetStock()
+    public int getWasteSize()
     {
-        while(!waste.isEmpty())
-        {
-            Card c = waste.pop();
-            c.turnDown();
-            stock.push(c);
-        }
+        return state.wasteSize();
     }
     
     /**
@@ -220,18 +259,11 @@ public class Solitaire
      */
     public void stockClicked()
     {
-        if(display.isWasteSelected() || display.isPileSelected())
+        if(isWasteSelected() || isPileSelected())
         {
             return;
         }
-        else if(!stock.isEmpty())
-        {
-            dealThreeCards();
-        }
-        else
-        {
-            resetStock();
-        }
+        drawFromStock();
     }
 
     /**
@@ -243,13 +275,13 @@ public class Solitaire
      */
     public void wasteClicked()
     {
-        if(!waste.isEmpty() && !display.isWasteSelected() && !display.isPileSelected())
+        if(state.wasteSize()>0 && !isWasteSelected() && !isPileSelected())
         {
-            display.selectWaste();
+            selectWaste();
         }
-        else if(display.isWasteSelected())
+        else if(isWasteSelected())
         {
-            display.unselect();
+            unselect();
         }
     }
 
@@ -257,7 +289,7 @@ public class Solitaire
      * Called when the foundation is clicked, performs one of various 
      * actions depending on state of game.
      * @param index an index into the foundations array
-     * @precondition the index is valid (between 0 and 6 inclusive)
+     * @precondition the index is valid (between 0 and 3 inclusive)
      * @postcondition a card popped from the waste is pushed to the foundations
      *                at the given index if the waste is selected and the card on top
      *                of the waste can be added at the given index, otherwise if
@@ -268,18 +300,14 @@ public class Solitaire
      */
     public void foundationClicked(int index)
     {
-        if(display.isWasteSelected() && canAddToFoundation(waste.peek(), index))
+        if(isWasteSelected() && moveWasteToFoundation(index))
         {
-            foundations[index].push(waste.pop());
-            display.unselect();
+            unselect();
         }
-        else if(display.isPileSelected()
-                && canAddToFoundation(piles[display.selectedPile()].peek(), index))
+        else if(isPileSelected() && movePileToFoundation(selectedPile(), index))
         {
-            foundations[index].push(piles[display.selectedPile()].pop());
-            display.unselect();
+            unselect();
         }
-        
     }
     
     /**
@@ -291,19 +319,7 @@ public class Solitaire
      */
     public boolean celebrateTime()
     {
-        for(int i = 0; i<4; i++)
-        {
-            Stack<Card> temp = foundations[i];
-            if(temp.isEmpty())
-            {
-                return false;
-            }
-            else if(temp.peek().getRank()!=13)
-            {
-                return false;
-            }
-        }
-        return true;
+        return state.isWon();
     }
   
     /**
@@ -312,161 +328,386 @@ public class Solitaire
      * @param index an index into the piles array
      * @precondition the index is valid (between 0 and 6 inclusive)
      * @postcondition if a pile is selected and the given index doesnt match
-     *                the index of that pile, then the face up cards on the selected pile
-     *                are extracted to a stack. If the top card on the stack can be added 
-     *                safely to the pile at the given index, then it is added and the 
-     *                old pile is unselected. Otherwise, if the waste is seleted, the top 
-     *                card of the waste is extracted into a card. If the card can be 
-     *                safely added to the pile with the given
-     *                index, then it is added and the old pile 
-     *                is unselected. Otherwise if the waste
-     *                isn't selected and a pile isn't selected 
-     *                and the pile at the given index is not empty
-     *                and the card at the top of the pile with 
-     *                the given index is face up, then the pile at the
-     *                given index is selcted. Otherwise if the selectedPile 
-     *                matches the given index, it is unselected.
-     *                Otherwise, if the waste isn't selected and a pile 
-     *                isn't selected and the pile at the
-     *                given index is not empty and the top card of the 
-     *                pile at the given index is face down,
+     *                the index of that pile, then the face up cards on the selected pile,
+     *                from the one that can be added safely to the pile at the given
+     *                index up, are moved there and the old pile is unselected. Otherwise, if the waste
+     *                is seleted, the top card of the waste is moved to the pile with
+     *                the given index if it can be safely added, and the waste is
+     *                unselected. Otherwise if the waste isn't selected and a pile
+     *                isn't selected and the pile at the given index is not empty
+     *                and the card at the top of the pile with the given index is
+     *                face up, then the pile at the given index is selcted. Otherwise
+     *                if the selectedPile matches the given index, it is unselected.
+     *                Otherwise, if the waste isn't selected and a pile isn't selected
+     *                and the top card of the pile at the given index is face down,
      *                the top card of the pile with the given index is turned up.
      */
     public void pileClicked(int index)
     {
-        if(display.isPileSelected() && index!=display.selectedPile())
+        if(isPileSelected() && index!=selectedPile())
         {
-            Stack<Card> s = removeFaceUpCards(display.selectedPile());
-            if(canAddToPile(s.peek(), index))
-            {
-                addToPile(s, index);
-                display.unselect();
-            }
-            else
+            if(movePileToPile(selectedPile(), index))
             {
-                addToPile(s, display.selectedPile());
+                unselect();
             }
         }
-        else if(display.isWasteSelected())
+        else if(isWasteSelected())
         {
-            Card c = waste.peek();
-            if(canAddToPile(c, index))
+            if(moveWasteToPile(index))
             {
-                piles[index].push(waste.pop());
-                display.unselect();
+                unselect();
             }
         }
-        else if(!display.isWasteSelected() && !display.isPileSelected() && 
-                !piles[index].isEmpty() && piles[index].peek().isFaceUp())
+        else if(!isWasteSelected() && !isPileSelected() && state.isPileTopFaceUp(index))
         {   
-            display.selectPile(index);
+            selectPile(index);
         }    
-        else if(display.selectedPile()==index)
+        else if(selectedPile()==index)
         {
-            display.unselect();
+            unselect();
         }
-        else if(!display.isWasteSelected()
-                && !display.isPileSelected() && !piles[index].isEmpty() 
-                && !piles[index].peek().isFaceUp())
+        else if(!isWasteSelected() && !isPileSelected())
         {
-            piles[index].peek().turnUp();
+            turnOverPile(index);
         }
     }
-    
+
+    /**
+     * Deals three cards from the stock onto the waste, or resets the
+     * stock if it is empty.
+     * @postcondition three cards have been dealt if the stock isn't empty,
+     *                otherwise the waste has been turned back into the stock.
+     * @return true if any card was moved, false otherwise.
+     */
+    public boolean drawFromStock()
+    {
+        return play(state.drawMove());
+    }
+
     /**
-     * Checks whether the given card can be added to the pile at the given index.
-     * @param card a Card
+     * Moves the top card of the waste onto the foundation at the given index.
+     * @param index an index into the foundations array
+     * @precondition index is valid (between 0 and 3 inclusive).
+     * @postcondition the card has been moved if it can be added.
+     * @return true if the card was moved, false otherwise.
+     */
+    public boolean moveWasteToFoundation(int index)
+    {
+        return play(Moves.make(Moves.WASTE_TO_FOUNDATION, 0, index, 1));
+    }
+
+    /**
+     * Moves the top card of the waste onto the pile at the given index.
      * @param index an index into the piles array
-     * @postcondition true is returned if the card can be added (if the pile is empty,
-     *                only a king can be added, otherwise, the suit must be opposite and the 
-     *                given card must have a rank one less than the card on the pile), 
-     *                false otherwise.
-     * @return true if the card can be added, false otherwise.
+     * @precondition index is valid (between 0 and 6 inclusive).
+     * @postcondition the card has been moved if it can be added.
+     * @return true if the card was moved, false otherwise.
      */
-    private boolean canAddToPile(Card card, int index)
+    public boolean moveWasteToPile(int index)
     {
-        if(piles[index].isEmpty())
+        return play(Moves.make(Moves.WASTE_TO_PILE, 0, index, 1));
+    }
+
+    /**
+     * Moves the top card of a pile onto a foundation.
+     * @param pile an index into the piles array
+     * @param index an index into the foundations array
+     * @precondition pile is between 0 and 6 and index is between 0 and 3.
+     * @postcondition the card has been moved if it is face up and can be added.
+     * @return true if the card was moved, false otherwise.
+     */
+    public boolean movePileToFoundation(int pile, int index)
+    {
+        return play(Moves.make(Moves.PILE_TO_FOUNDATION, pile, index, 1));
+    }
+
+    /**
+     * Moves face up cards of one pile onto another pile: the face up card
+     * that can be added to the other pile and all the cards on top of it.
+     * @param from an index into the piles array
+     * @param to an index into the piles array
+     * @precondition from and to are valid (between 0 and 6 inclusive).
+     * @postcondition the cards have been moved if one of the face up cards
+     *                can be added to the pile at index to, otherwise
+     *                both piles are unchanged.
+     * @return true if the cards were moved, false otherwise.
+     */
+    public boolean movePileToPile(int from, int to)
+    {
+        return play(state.pileToPileMove(from, to));
+    }
+
+    /**
+     * Turns up the top card of the pile at the given index.
+     * @param index an index into the piles array
+     * @precondition index is valid (between 0 and 6 inclusive).
+     * @postcondition the top card has been turned up if it was face down.
+     * @return true if a card was turned up, false otherwise.
+     */
+    public boolean turnOverPile(int index)
+    {
+        return play(Moves.make(Moves.TURN_OVER, index, 0, 0));
+    }
+
+    /**
+     * Unselects the waste or pile.
+     * @postcondition nothing is selected.
+     */
+    public void unselect()
+    {
+        selectedRow = -1;
+        selectedCol = -1;
+    }
+
+    /**
+     * Checks whether the waste is selected.
+     * @return true if the waste is selected, false otherwise.
+     */
+    public boolean isWasteSelected()
+    {
+        return selectedRow == 0 && selectedCol == 1;
+    }
+
+    /**
+     * Selects the waste.
+     * @postcondition the waste is selected.
+     */
+    public void selectWaste()
+    {
+        selectedRow = 0;
+        selectedCol = 1;
+    }
+
+    /**
+     * Checks whether a pile is selected.
+     * @return true if a pile is selected, false otherwise.
+     */
+    public boolean isPileSelected()
+    {
+        return selectedRow == 1;
+    }
+
+    /**
+     * Gets the index of the selected pile.
+     * @return the index of the selected pile, or -1 if no pile is selected.
+     */
+    public int selectedPile()
+    {
+        if (selectedRow == 1)
+            return selectedCol;
+        else
+            return -1;
+    }
+
+    /**
+     * Selects the pile at the given index.
+     * @param index an index into the piles array
+     * @postcondition the pile at the given index is selected.
+     */
+    public void selectPile(int index)
+    {
+        selectedRow = 1;
+        selectedCol = index;
+    }
+    
+    /**
+     * Makes a move if it is legal. Every move in the game goes through
+     * here, so this is where a Flight Recorder event is emitted for it.
+     * @param move a move
+     * @postcondition the move has been made and recorded in the journal
+     *                if it follows the rules.
+     * @return true if the move was made, false otherwise.
+     */
+    public boolean play(int move)
+    {
+        Telemetry.MoveEvent event = new Telemetry.MoveEvent();
+        event.begin();
+        boolean legal = state.isLegal(move);
+        if(legal)
         {
-            if(card.getRank()==13)
-            {
-                return true;
-            }
-            return false;
+            state.apply(move);
+            journal.record(move);
         }
-        Card pileCard = piles[index].peek();
-        if(pileCard.isFaceUp())
+        if(event.shouldCommit())
         {
-            String cardSuit = card.getSuit();
-            String pileCardSuit = pileCard.getSuit();
-            if(card.getRank()+1==pileCard.getRank() && 
-                 ((cardSuit.equals("h") || cardSuit.equals("d")) &&
-                  (pileCardSuit.equals("c") || pileCardSuit.equals("s")) ||
-                  (cardSuit.equals("c") || cardSuit.equals("s")) &&
-                  (pileCardSuit.equals("h") || pileCardSuit.equals("d"))))
-            {
-                return true;
-            }
+            event.type = Moves.type(move);
+            event.from = Moves.from(move);
+            event.to = Moves.to(move);
+            event.count = Moves.count(move);
+            event.legal = legal;
+            event.commit();
         }
-        return false;
+        return legal;
     }
-    
+
     /**
-     * Removes the face up cards at the pile with the given index.
-     * @param index an index into the piles array.
-     * @postcondition the face up cards at the pile with the given
-     *                index are returned as a stack of cards.
+     * Takes back the last move made.
+     * @postcondition the game is as it was before the last move, and
+     *                nothing is selected.
+     * @return the move taken back, or Moves.NONE if no move has been made.
      */
-    private Stack<Card> removeFaceUpCards(int index)
+    public int undo()
     {
-        Stack<Card> s = new Stack<Card>();
-        while(!piles[index].isEmpty() && piles[index].peek().isFaceUp())
+        int move = journal.undo();
+        if(move!=Moves.NONE)
         {
-            s.push(piles[index].pop());
+            state.undo(move);
+            unselect();
         }
-        return s;
+        return move;
     }
-    
+
     /**
-     * Checks if the stack of Cards can be added to the pile with 
-     * the given index.
-     * @param cards a Stack of Cards
-     * @param index an index into the piles array
-     * @postcondition true is returned if the stack of Cards
-     *                can be added to the pile with the given
-     *                index, false otherwise.
+     * Makes again the last move taken back.
+     * @postcondition the move has been made again, and nothing is selected.
+     * @return the move made again, or Moves.NONE if there isn't one.
      */
-    private void addToPile(Stack<Card> cards, int index)
+    public int redo()
     {
-        while(!cards.isEmpty())
+        int move = journal.redo();
+        if(move!=Moves.NONE)
         {
-            piles[index].push(cards.pop());
+            state.apply(move);
+            unselect();
         }
+        return move;
     }
-    
+
     /**
-     * Checks if the given card can be added to the foundation at the
-     * given index.
-     * @param card a Card
-     * @param index an index into the foundations array.
-     * @postcondition returns true if the card can be added to the foundation
-     *                with the given index(can be added if the foundation is empty
-     *                and the card's rank is 1 or if the foundation's top card has a
-     *                rank one lower than the given cards rank and they are the same suit.
+     * Moves every card to the foundations that can safely go there, as
+     * decided by GameState.isSafeForFoundation, repeating until there are
+     * none left. Once no face down cards are left in the piles, the game
+     * is finished off with the moves the solver finds to win it, if any.
+     * That search can take up to a second, so this must not be called on
+     * the event dispatch thread (SolitaireDisplay sends it to its
+     * GameActor), and it isn't tried again in a position it has failed in.
+     * Each move is made with play, so it is recorded and can be undone.
+     * @postcondition no safe move to a foundation is left, and the game
+     *                has been won if it had no face down cards and could be won.
+     * @return the number of moves made.
      */
-    private boolean canAddToFoundation(Card card, int index)
+    public int autoPlay()
     {
-        if(foundations[index].isEmpty())
+        int made = 0;
+        for(int move = state.safeFoundationMove(); move!=Moves.NONE; move = state.safeFoundationMove())
         {
-            if(card.getRank()==1)
+            play(move);
+            made++;
+        }
+        if(!state.isWon() && faceDownCount()==0 && !(triedFinish && unfinished==state.zobristHash()))
+        {
+            Solver finisher = FINISHERS.get();
+            if(finisher.solve(state)!=Solver.WON)
+            {
+                unfinished = state.zobristHash();
+                triedFinish = true;
+            }
+            else
             {
-                return true;
+                int[] solution = finisher.getSolution();
+                for(int i = 0; i<solution.length; i++)
+                {
+                    play(solution[i]);
+                }
+                made += solution.length;
             }
-            return false;
         }
-        else
+        if(made>0)
         {
-            return (getFoundationCard(index).getRank()==card.getRank()-1 
-                    && getFoundationCard(index).getSuit().equals(card.getSuit()));
+            unselect();
+        }
+        return made;
+    }
+
+    /**
+     * Counts the face down cards left in the piles.
+     * @return the number of face down cards.
+     */
+    public int faceDownCount()
+    {
+        return state.faceDownCount();
+    }
+
+    /**
+     * Counts the cards on the foundations.
+     * @return the number of cards on the foundations, 52 once the game is won.
+     */
+    public int getFoundationCount()
+    {
+        return state.foundationCount();
+    }
+
+    /**
+     * Gets the number of times the waste has been turned over into the
+     * stock, not counting passes taken back.
+     * @return the number of stock passes.
+     */
+    public int getStockPasses()
+    {
+        return state.stockPasses();
+    }
+
+    /**
+     * Gets the number of moves made in the game, not counting moves taken back.
+     * @return the number of moves made.
+     */
+    public int getMoveCount()
+    {
+        return journal.size();
+    }
+
+    /**
+     * Gets one of the moves made in the game.
+     * @param index the index of the move, 0 being the first move of the game
+     * @precondition index is less than getMoveCount().
+     * @return the move.
+     */
+    public int getMove(int index)
+    {
+        return journal.get(index);
+    }
+
+    /**
+     * Lists every legal move in the current position.
+     * @param moves an array of at least Moves.MAX_MOVES ints
+     * @postcondition the legal moves are at the start of the array.
+     * @return the number of legal moves.
+     */
+    public int getLegalMoves(int[] moves)
+    {
+        return state.generateMoves(moves);
+    }
+
+    /**
+     * Gets a copy of the game state, for searching without changing the game.
+     * @return a copy of the game state.
+     */
+    public GameState getState()
+    {
+        return state.copy();
+    }
+
+    /**
+     * Gets a hash of the current position, which is the same whenever the
+     * cards are in the same places.
+     * @return the Zobrist hash of the game state.
+     */
+    public long getPositionHash()
+    {
+        return state.zobristHash();
+    }
+
+    /**
+     * Gets the Card for a card code.
+     * @param code a card code, or GameState.NO_CARD
+     * @return the Card with the given code, or null for NO_CARD.
+     */
+    private Card getCard(int code)
+    {
+        if(code==GameState.NO_CARD)
+        {
+            return null;
         }
+        return Card.fromCode(code);
     }
 }
\ No newline at end of file
@@ -1,137 +1,429 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.*;
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
 import javax.swing.*;
-public class SolitaireDisplay extends JComponent implements MouseListener
+public class SolitaireDisplay extends JComponent implements MouseListener, HintEngine.Listener, GameActor.Listener
 {
     private static final int CARD_WIDTH = 73;
     private static final int CARD_HEIGHT = 97;
     private static final int SPACING = 5;  //distance between cards
     private static final int FACE_UP_OFFSET = 15;  //distance for cascading face-up cards
     private static final int FACE_DOWN_OFFSET = 5;  //distance for cascading face-down cards
-    public int points;
+    private static final Color BACKGROUND = new Color(0, 128, 0);
+    private static final Color SELECTION_COLOR = Color.YELLOW;
+    private static final Color HINT_COLOR = Color.CYAN;
+    private static final long HINT_NODES = 200000;  //most positions searched for a hint
+    private static final long HINT_MILLIS = 2000;  //most time spent on a hint
+    private static final int HUD_X = SPACING * 3 + CARD_WIDTH * 2;  //the empty spot between the waste and the aces
+    private static final int HUD_UPDATE_MILLIS = 250;  //how often the HUD checks whether the time has changed
+    private static final int PILE_Y = CARD_HEIGHT + 2 * SPACING;  //top of the piles
+    //areas of the table that can be repainted on their own, as bits of a dirty mask
+    private static final int STOCK_AREA = 1;
+    private static final int HUD_AREA = 1 << 1;
+    private static final int FOUNDATION_AREA = 1 << 2;  //shifted left by the foundation index
+    private static final int PILE_AREA = 1 << 6;  //shifted left by the pile index
+    private int points;
     private long start;
+    private volatile long stop = -1;  //when the game was won, or -1 while it is being played
+    private int elapsed = -1;  //elapsed seconds shown in the HUD, changed only on the event dispatch thread
+    private String pointsText;
+    private String timeText;
+    private String progressText;  //cards on the foundations, shown in the HUD
+    private javax.swing.Timer hudTimer;
+    private BufferedImage background;  //the green table with the outlines of the empty spots
+    private HintEngine hints;
+    private long hintPosition;  //hash of the position the hint is for
+    private int hint = Moves.NONE;  //best move found for the current position so far
+    private boolean showHint;  //whether the player asked for a hint in this position
+    private boolean autoPlay;  //whether safe moves to the aces are made after each click
 
     private JFrame frame;
-    private int selectedRow = -1;
-    private int selectedCol = -1;
-    private Solitaire game;
+    private Path saveFile;  //where the game is saved when the window is closed, or null
+    private GameActor actor;  //the game's own thread, which every change goes through
+    private GameView shown;  //the view being painted, used only on the event dispatch thread
+    private final AtomicBoolean updatePending = new AtomicBoolean();  //whether a newer view is on its way to be painted
+    private CardImages images;
+
+    //paints the latest view, however many were published since the last time it ran
+    private final Runnable showLatest = new Runnable() {
+        public void run()
+        {
+            updatePending.set(false);
+            show(actor.getView());
+        }
+    };
 
     public SolitaireDisplay(Solitaire game)
     {
-        this.game = game;
-
-        frame = new JFrame("Solitaire");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.getContentPane().add(this);
+        this(game, 0, 0);
+    }
 
-        this.setPreferredSize(new Dimension(CARD_WIDTH * 7 + SPACING * 8, CARD_HEIGHT * 2 + SPACING * 3 + FACE_DOWN_OFFSET * 7 + 13 * FACE_UP_OFFSET));
+    /*
+     * Shows a game that was saved with the given points and time played.
+     * From now on the game must only be changed through getActor().
+     */
+    public SolitaireDisplay(Solitaire game, int points, long elapsedMillis)
+    {
+        actor = new GameActor(game, this);
+        setUp(actor.getView(), points);
         this.addMouseListener(this);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "redo");
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_H, 0), "hint");
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_A, 0), "auto");
 
-        frame.pack();
-        frame.setVisible(true);
-        points = 0;
-        
-        start = System.currentTimeMillis();
+        start = System.currentTimeMillis() - elapsedMillis;
+        if (shown.isWon())
+            stop = System.currentTimeMillis();
+        updateTime();
+        hudTimer = new javax.swing.Timer(HUD_UPDATE_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e)
+            {
+                if (updateTime())
+                    repaintArea(HUD_AREA, false);
+            }
+        });
 
+        hints = new HintEngine(HINT_NODES, HINT_MILLIS);
+        hintPosition = ~shown.getPositionHash();
+        positionChanged();
+    }
 
+    /*
+     * Draws a view that never changes, for benchmarks and screenshots. No
+     * game thread, hint search or timer is started, so the display doesn't
+     * answer clicks or keys and only paintComponent may be used.
+     */
+    public SolitaireDisplay(GameView view)
+    {
+        setUp(view, 0);
+        timeText = "Time: 0s";
     }
 
-    public void paintComponent(Graphics g)
+    //what both kinds of display start with
+    private void setUp(GameView view, int points)
     {
-        //background
-        g.setColor(new Color(0, 128, 0));
-        g.fillRect(0, 0, getWidth(), getHeight());
-        
-        //clearing screen (SUPER EFFICIENTLY :))
-        for(int i = 0; i<1000; i++)
+        shown = view;
+        progressText = "Home: " + shown.getFoundationCount() + "/52";
+        images = CardImages.get(CARD_WIDTH, CARD_HEIGHT);
+        this.setPreferredSize(new Dimension(CARD_WIDTH * 7 + SPACING * 8, CARD_HEIGHT * 2 + SPACING * 3 + FACE_DOWN_OFFSET * 7 + 13 * FACE_UP_OFFSET));
+        this.points = points;
+        pointsText = "Points: " + points;
+    }
+
+    /*
+     * Picks up the game saved in the file, or deals a new one if there
+     * isn't a saved game or it can't be read. Closing the window saves
+     * the game to the file again.
+     */
+    public static SolitaireDisplay resume(Path file)
+    {
+        Snapshot saved = null;
+        try
         {
-            System.out.println();
+            saved = Snapshot.load(file);
         }
-        
-        /*
-         * First additional credit.
-         * Prints out the number of total clicks as 'points', where 
-         * a lower number is better.
-         */
-        System.out.println("Points (measured as clicks): " + points++);
-        
-        //gets current time in milliseconds.
-        long now = System.currentTimeMillis();
-        
-        /*
-         * Second additional credit.
-         * Computes elapsed time since start and converts it to seconds.
-         */
-        int elapsed = (int)((now-start)/1000.0);
-        
-        //prints elapsed time.
-        System.out.println("Time Elapsed (in seconds, updates every time you click): " + elapsed + " seconds");
-        
-        /*
-         * Third additional credit - prints out celebration
-         * message when game is won.
-         */
-        if(game.celebrateTime())
+        catch (IOException e)
         {
-            for(int i = 0; i<100; i++)
+            System.err.println("can't resume the saved game: " + e.getMessage());
+        }
+        SolitaireDisplay display;
+        if (saved == null)
+            display = new SolitaireDisplay(new Solitaire());
+        else
+            display = new SolitaireDisplay(saved.toGame(), saved.getPoints(), saved.getElapsedMillis());
+        display.saveFile = file;
+        return display;
+    }
+
+    public void showInFrame()
+    {
+        frame = new JFrame("Solitaire - deal " + shown.getDealNumber());
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e)
             {
-                System.out.println("YAY!! YOU WON!!");
+                actor.shutdown();
+                save();
             }
-            System.out.println("You got a score of " + points + " points! (lower is better)");
-            System.out.println("You won in " + elapsed + " seconds");
-            System.out.println("Can you beat that?");
-        }
-        
-        //face down
-        drawCard(g, game.getStockCard(), SPACING, SPACING);
+        });
+        frame.getContentPane().add(this);
 
-        //stock
-        drawCard(g, game.getWasteCard(), SPACING * 2 + CARD_WIDTH, SPACING);
-        if (selectedRow == 0 && selectedCol == 1)
-            drawBorder(g, SPACING * 2 + CARD_WIDTH, SPACING);
+        frame.pack();
+        frame.setVisible(true);
+    }
+
+    /*
+     * Draws only the parts of the table that fall inside the clip, so that
+     * repainting one pile doesn't redraw the whole window. Everything is
+     * drawn from the view, so painting never waits for the game.
+     */
+    public void paintComponent(Graphics g)
+    {
+        //background
+        if (getWidth() <= 0 || getHeight() <= 0)
+            return;
+        long begin = System.nanoTime();
+        Telemetry.PaintEvent event = new Telemetry.PaintEvent();
+        event.begin();
+        g.drawImage(getBackgroundImage(), 0, 0, null);
+        GameView view = shown;
+
+        if (g.hitClip(HUD_X, SPACING, CARD_WIDTH, CARD_HEIGHT))
+            drawHud(g);
+
+        if (g.hitClip(SPACING, SPACING, CARD_WIDTH * 2 + SPACING + 1, CARD_HEIGHT + 1))
+        {
+            //face down
+            drawCard(g, view.getStockTop(), false, SPACING, SPACING);
+            if (isHinted(Moves.DRAW) || isHinted(Moves.RESET))
+                drawBorder(g, SPACING, SPACING, HINT_COLOR);
+
+            //stock
+            drawCard(g, view.getWasteTop(), true, SPACING * 2 + CARD_WIDTH, SPACING);
+            if (view.isWasteSelected())
+                drawBorder(g, SPACING * 2 + CARD_WIDTH, SPACING, SELECTION_COLOR);
+            else if (isHinted(Moves.WASTE_TO_PILE) || isHinted(Moves.WASTE_TO_FOUNDATION))
+                drawBorder(g, SPACING * 2 + CARD_WIDTH, SPACING, HINT_COLOR);
+        }
 
         //aces
         for (int i = 0; i < 4; i++)
-            drawCard(g, game.getFoundationCard(i), SPACING * (4 + i) + CARD_WIDTH * (3 + i), SPACING);
+            if (g.hitClip(foundationX(i), SPACING, CARD_WIDTH + 1, CARD_HEIGHT + 1))
+            {
+                drawCard(g, view.getFoundationTop(i), true, foundationX(i), SPACING);
+                if ((isHinted(Moves.WASTE_TO_FOUNDATION) || isHinted(Moves.PILE_TO_FOUNDATION)) && Moves.to(hint) == i)
+                    drawBorder(g, foundationX(i), SPACING, HINT_COLOR);
+            }
 
         //piles
         for (int i = 0; i < 7; i++)
         {
-            Stack<Card> pile = game.getPile(i);
+            if (!g.hitClip(pileX(i), PILE_Y, CARD_WIDTH + 1, getHeight() - PILE_Y))
+                continue;
+            int size = view.getPileSize(i);
+            int hinted = hintedCard(i);
             int offset = 0;
-            for (int j = 0; j < pile.size(); j++)
+            if (size == 0 && hinted == 0)
+                drawBorder(g, pileX(i), PILE_Y, HINT_COLOR);
+            for (int j = 0; j < size; j++)
             {
-                drawCard(g, pile.get(j), SPACING + (CARD_WIDTH + SPACING) * i, CARD_HEIGHT + 2 * SPACING + offset);
-                if (selectedRow == 1 && selectedCol == i && j == pile.size() - 1)
-                    drawBorder(g, SPACING + (CARD_WIDTH + SPACING) * i, CARD_HEIGHT + 2 * SPACING + offset);
+                boolean faceUp = j >= view.getPileFaceDown(i);
+                drawCard(g, view.getPileCard(i, j), faceUp, pileX(i), PILE_Y + offset);
+                if (view.getSelectedPile() == i && j == size - 1)
+                    drawBorder(g, pileX(i), PILE_Y + offset, SELECTION_COLOR);
+                else if (j == hinted)
+                    drawBorder(g, pileX(i), PILE_Y + offset, HINT_COLOR);
 
-                if (pile.get(j).isFaceUp())
+                if (faceUp)
                     offset += FACE_UP_OFFSET;
                 else
                     offset += FACE_DOWN_OFFSET;
             }
         }
+
+        Telemetry.record(Metrics.PAINT, System.nanoTime() - begin);
+        if (event.shouldCommit())
+        {
+            Rectangle clip = g.getClipBounds();
+            event.width = clip == null ? getWidth() : clip.width;
+            event.height = clip == null ? getHeight() : clip.height;
+            event.commit();
+        }
+    }
+
+    //empty spots are outlined in the background image, so only cards are drawn
+    private void drawCard(Graphics g, int card, boolean faceUp, int x, int y)
+    {
+        if (card != GameState.NO_CARD)
+            images.draw(g, faceUp ? card : CardImages.BACK, x, y);
     }
 
-    private void drawCard(Graphics g, Card card, int x, int y)
+    /*
+     * Gets the green table with the outlines of the stock, waste and
+     * aces, drawing it again only if the size of the component changed.
+     */
+    private BufferedImage getBackgroundImage()
     {
-        if (card == null)
+        if (background == null || background.getWidth() != getWidth() || background.getHeight() != getHeight())
         {
+            background = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics g = background.getGraphics();
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, getWidth(), getHeight());
             g.setColor(Color.BLACK);
-            g.drawRect(x, y, CARD_WIDTH, CARD_HEIGHT);
+            g.drawRect(SPACING, SPACING, CARD_WIDTH, CARD_HEIGHT);
+            g.drawRect(SPACING * 2 + CARD_WIDTH, SPACING, CARD_WIDTH, CARD_HEIGHT);
+            for (int i = 0; i < 4; i++)
+                g.drawRect(foundationX(i), SPACING, CARD_WIDTH, CARD_HEIGHT);
+            g.dispose();
         }
-        else
+        return background;
+    }
+
+    private static int foundationX(int index)
+    {
+        return SPACING * (4 + index) + CARD_WIDTH * (3 + index);
+    }
+
+    private static int pileX(int index)
+    {
+        return SPACING + (CARD_WIDTH + SPACING) * index;
+    }
+
+    /*
+     * Repaints each area in the dirty mask. Swing would merge separate
+     * repaint requests into one rectangle covering all of them, so when
+     * handling a click the areas are painted right away, one at a time.
+     */
+    private void repaintArea(int dirty, boolean now)
+    {
+        for (int area = 0; dirty != 0; area++, dirty >>>= 1)
         {
-            String fileName = card.getFileName();
-            if (!new File(fileName).exists())
-                throw new IllegalArgumentException("bad file name:  " + fileName);
-            Image image = new ImageIcon(fileName).getImage();
-            g.drawImage(image, x, y, CARD_WIDTH, CARD_HEIGHT, null);
+            if ((dirty & 1) == 0)
+                continue;
+            int x, y, w, h;
+            if (area == 0)
+            {
+                x = SPACING;
+                y = SPACING;
+                w = CARD_WIDTH * 2 + SPACING + 1;
+                h = CARD_HEIGHT + 1;
+            }
+            else if (area == 1)
+            {
+                x = HUD_X;
+                y = SPACING;
+                w = CARD_WIDTH;
+                h = CARD_HEIGHT;
+            }
+            else if (area < 6)
+            {
+                x = foundationX(area - 2);
+                y = SPACING;
+                w = CARD_WIDTH + 1;
+                h = CARD_HEIGHT + 1;
+            }
+            else
+            {
+                x = pileX(area - 6);
+                y = PILE_Y;
+                w = CARD_WIDTH + 1;
+                h = getHeight() - PILE_Y;
+            }
+            if (now)
+                paintImmediately(x, y, w, h);
+            else
+                repaint(x, y, w, h);
         }
     }
 
+    /*
+     * Draws the points, the elapsed time, the cards on the foundations and,
+     * once the game is won, a celebration message in the empty spot between
+     * the waste and the aces. Points are counted as clicks, where a lower
+     * number is better.
+     */
+    private void drawHud(Graphics g)
+    {
+        g.setColor(Color.WHITE);
+        g.drawString(pointsText, HUD_X + 4, SPACING + 20);
+        g.drawString(timeText, HUD_X + 4, SPACING + 40);
+        g.drawString(progressText, HUD_X + 4, SPACING + 55);
+        if (autoPlay)
+            g.drawString("Auto-play", HUD_X + 4, SPACING + 70);
+        if (shown.isWon())
+        {
+            g.setColor(Color.YELLOW);
+            g.drawString("You won!", HUD_X + 4, SPACING + 85);
+        }
+    }
+
+    /*
+     * Recomputes the elapsed time shown in the HUD. Only the event dispatch
+     * thread calls this. Returns true if the number of seconds shown has changed.
+     */
+    private boolean updateTime()
+    {
+        int seconds = getElapsedSeconds();
+        if (seconds == elapsed)
+            return false;
+        elapsed = seconds;
+        timeText = "Time: " + elapsed + "s";
+        return true;
+    }
+
+    /*
+     * Saves the game, as of the latest view, to the save file, if it has
+     * one, so it can be picked up again. A won game is deleted instead,
+     * since there is nothing left to play.
+     */
+    public void save()
+    {
+        if (saveFile == null)
+            return;
+        GameView view = actor.getView();
+        try
+        {
+            if (view.isWon())
+                Files.deleteIfExists(saveFile);
+            else
+                new Snapshot(view.getDealNumber(), view.getState(), points, getElapsedMillis()).save(saveFile);
+        }
+        catch (IOException e)
+        {
+            System.err.println("can't save the game: " + e.getMessage());
+        }
+    }
+
+    //the time played, which stops counting once the game is won; safe to call from any thread
+    public long getElapsedMillis()
+    {
+        long end = stop;
+        return (end >= 0 ? end : System.currentTimeMillis()) - start;
+    }
+
+    public int getPoints()
+    {
+        return points;
+    }
+
+    public int getElapsedSeconds()
+    {
+        return (int)(getElapsedMillis() / 1000);
+    }
+
+    public boolean isWon()
+    {
+        return actor.getView().isWon();
+    }
+
+    //bots and replays drive the game through the actor too, and the display follows
+    public GameActor getActor()
+    {
+        return actor;
+    }
+
+    public void addNotify()
+    {
+        super.addNotify();
+        if (hudTimer != null)
+            hudTimer.start();
+    }
+
+    public void removeNotify()
+    {
+        if (hudTimer != null)
+            hudTimer.stop();
+        super.removeNotify();
+    }
+
     public void mouseExited(MouseEvent e)
     {
     }
@@ -148,9 +440,17 @@ public class SolitaireDisplay extends JComponent implements MouseListener
     {
     }
 
+    /*
+     * Sends the click to the game's thread and returns straight away; the
+     * cards are repainted when the view after it comes back.
+     */
     public void mouseClicked(MouseEvent e)
     {
-        //none selected previously
+        final Telemetry.ClickEvent event = new Telemetry.ClickEvent();
+        event.begin();
+        final long when = e.getWhen();
+        final int movesBefore = shown.getMoveCount();
+
         int col = e.getX() / (SPACING + CARD_WIDTH);
         int row = e.getY() / (SPACING + CARD_HEIGHT);
         if (row > 1)
@@ -158,58 +458,235 @@ public class SolitaireDisplay extends JComponent implements MouseListener
         if (col > 6)
             col = 6;
 
+        int command = GameActor.VIEW;
         if (row == 0 && col == 0)
-            game.stockClicked();
+            command = GameActor.CLICK_STOCK;
         else if (row == 0 && col == 1)
-            game.wasteClicked();
+            command = GameActor.CLICK_WASTE;
         else if (row == 0 && col >= 3)
-            game.foundationClicked(col - 3);
+            command = GameActor.clickFoundation(col - 3);
         else if (row == 1)
-            game.pileClicked(col);
-        repaint();
+            command = GameActor.clickPile(col);
+        event.row = row;
+        event.column = col;
+        actor.submit(command).thenAccept(new Consumer<GameView>() {
+            public void accept(GameView view)
+            {
+                //the click's time is only known to the millisecond
+                Telemetry.record(Metrics.CLICK_TO_HANDLED, (System.currentTimeMillis() - when) * 1000000L);
+                event.moves = view.getMoveCount() - movesBefore;
+                event.commit();
+            }
+        });
+        if (autoPlay)
+            actor.send(GameActor.AUTO_PLAY);
+        points++;
+        pointsText = "Points: " + points;
+        updateTime();
+        repaintArea(HUD_AREA, false);
     }
 
-    private void drawBorder(Graphics g, int x, int y)
+    /*
+     * Turns auto-play on or off. Turning it on plays the safe moves
+     * waiting to be made straight away.
+     */
+    public void toggleAutoPlay()
     {
-        g.setColor(Color.YELLOW);
-        g.drawRect(x, y, CARD_WIDTH, CARD_HEIGHT);
-        g.drawRect(x + 1, y + 1, CARD_WIDTH - 2, CARD_HEIGHT - 2);
-        g.drawRect(x + 2, y + 2, CARD_WIDTH - 4, CARD_HEIGHT - 4);
+        autoPlay = !autoPlay;
+        if (autoPlay)
+            actor.send(GameActor.AUTO_PLAY);
+        repaintArea(HUD_AREA, true);
     }
 
-    public void unselect()
+    public void undo()
     {
-        selectedRow = -1;
-        selectedCol = -1;
+        actor.send(GameActor.UNDO);
     }
 
-    public boolean isWasteSelected()
+    public void redo()
     {
-        return selectedRow == 0 && selectedCol == 1;
+        actor.send(GameActor.REDO);
     }
 
-    public void selectWaste()
+    /*
+     * Called on the game's thread after each batch of commands. Views that
+     * come faster than the event dispatch thread paints them are merged:
+     * only the latest is painted, once.
+     */
+    public void viewChanged(GameView view)
     {
-        selectedRow = 0;
-        selectedCol = 1;
+        if (updatePending.compareAndSet(false, true))
+            SwingUtilities.invokeLater(showLatest);
     }
 
-    public boolean isPileSelected()
+    /*
+     * Switches to a newer view and paints the areas whose cards, selection
+     * or hint changed, however many commands went into it.
+     */
+    private void show(GameView view)
     {
-        return selectedRow == 1;
+        if (view == shown)
+            return;
+        int dirty = selectionArea() | hintArea() | changedAreas(shown, view);
+        if (view.getFoundationCount() != shown.getFoundationCount())
+        {
+            progressText = "Home: " + view.getFoundationCount() + "/52";
+            dirty |= HUD_AREA;
+        }
+        if (view.isWon() != shown.isWon())
+            stop = view.isWon() ? System.currentTimeMillis() : -1;
+        shown = view;
+        positionChanged();
+        repaintArea(dirty | selectionArea(), true);
+        Telemetry.record(Metrics.HANDLED_TO_PAINTED, System.nanoTime() - view.getMadeNanos());
     }
 
-    public int selectedPile()
+    //the areas whose cards differ between two views
+    private static int changedAreas(GameView before, GameView after)
     {
-        if (selectedRow == 1)
-            return selectedCol;
-        else
+        int dirty = 0;
+        if (before.getStockSize() != after.getStockSize() || before.getWasteSize() != after.getWasteSize()
+            || before.getWasteTop() != after.getWasteTop())
+            dirty |= STOCK_AREA;
+        for (int i = 0; i < 4; i++)
+            if (before.getFoundationTop(i) != after.getFoundationTop(i))
+                dirty |= FOUNDATION_AREA << i;
+        for (int i = 0; i < 7; i++)
+        {
+            int size = after.getPileSize(i);
+            boolean same = before.getPileSize(i) == size && before.getPileFaceDown(i) == after.getPileFaceDown(i);
+            for (int j = 0; same && j < size; j++)
+                same = before.getPileCard(i, j) == after.getPileCard(i, j);
+            if (!same)
+                dirty |= PILE_AREA << i;
+        }
+        return dirty;
+    }
+
+    //outlines the best move found so far, or the next one found
+    public void showHint()
+    {
+        showHint = true;
+        repaintArea(hintArea(), true);
+    }
+
+    /*
+     * Called on the hint engine's thread; the hint is handed to the event
+     * dispatch thread, which drops it if the game has moved on since.
+     */
+    public void hintFound(final long position, final int move)
+    {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run()
+            {
+                if (position != hintPosition)
+                    return;
+                hint = move;
+                repaintArea(hintArea(), false);
+            }
+        });
+    }
+
+    /*
+     * Forgets the hint if the cards have moved and starts looking for a
+     * new one in the background. Clicks that only select a card keep it.
+     */
+    private void positionChanged()
+    {
+        long position = shown.getPositionHash();
+        if (position == hintPosition)
+            return;
+        hintPosition = position;
+        hint = Moves.NONE;
+        showHint = false;
+        hints.analyse(shown.getState(), this);
+    }
+
+    //whether the hint being shown is a move of the given type
+    private boolean isHinted(int type)
+    {
+        return showHint && hint != Moves.NONE && Moves.type(hint) == type;
+    }
+
+    //the index of the card in a pile outlined by the hint, or -1
+    private int hintedCard(int pile)
+    {
+        if (!showHint || hint == Moves.NONE)
             return -1;
+        int type = Moves.type(hint);
+        int size = shown.getPileSize(pile);
+        if (Moves.from(hint) == pile && (type == Moves.PILE_TO_FOUNDATION || type == Moves.TURN_OVER))
+            return size - 1;
+        if (Moves.from(hint) == pile && type == Moves.PILE_TO_PILE)
+            return size - Moves.count(hint);
+        if (Moves.to(hint) == pile && (type == Moves.PILE_TO_PILE || type == Moves.WASTE_TO_PILE))
+            return Math.max(size - 1, 0);
+        return -1;
+    }
+
+    //the areas with the hint's borders
+    private int hintArea()
+    {
+        if (!showHint || hint == Moves.NONE)
+            return 0;
+        return moveArea(hint);
+    }
+
+    private void bindKey(KeyStroke key, final String name)
+    {
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(key, name);
+        getActionMap().put(name, new AbstractAction() {
+            public void actionPerformed(ActionEvent e)
+            {
+                if (name.equals("undo"))
+                    undo();
+                else if (name.equals("redo"))
+                    redo();
+                else if (name.equals("auto"))
+                    toggleAutoPlay();
+                else
+                    showHint();
+            }
+        });
     }
 
-    public void selectPile(int index)
+    //the area with the selected waste or pile, which has a border drawn around it
+    private int selectionArea()
     {
-        selectedRow = 1;
-        selectedCol = index;
+        if (shown.isWasteSelected())
+            return STOCK_AREA;
+        if (shown.getSelectedPile() >= 0)
+            return PILE_AREA << shown.getSelectedPile();
+        return 0;
+    }
+
+    //the areas a move takes cards from and puts cards on
+    private static int moveArea(int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        switch (Moves.type(move))
+        {
+            case Moves.WASTE_TO_PILE:
+                return STOCK_AREA | PILE_AREA << to;
+            case Moves.WASTE_TO_FOUNDATION:
+                return STOCK_AREA | FOUNDATION_AREA << to;
+            case Moves.PILE_TO_FOUNDATION:
+                return PILE_AREA << from | FOUNDATION_AREA << to;
+            case Moves.PILE_TO_PILE:
+                return PILE_AREA << from | PILE_AREA << to;
+            case Moves.TURN_OVER:
+                return PILE_AREA << from;
+            default:
+                return STOCK_AREA;
+        }
+    }
+
+    private void drawBorder(Graphics g, int x, int y, Color color)
+    {
+        g.setColor(color);
+        g.drawRect(x, y, CARD_WIDTH, CARD_HEIGHT);
+        g.drawRect(x + 1, y + 1, CARD_WIDTH - 2, CARD_HEIGHT - 2);
+        g.drawRect(x + 2, y + 2, CARD_WIDTH - 4, CARD_HEIGHT - 4);
     }
 }
\ No newline at end of file
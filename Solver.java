@@ -0,0 +1,438 @@
+import java.io.*;
+import java.nio.file.*;
+/**
+ * The Solver class decides whether a game of Solitaire, dealing three
+ * cards at a time from the stock, can be won, and finds the moves that
+ * win it. It searches depth first, trying the most promising moves first,
+ * remembers positions it has already searched in a PositionStore and
+ * makes safe moves to the foundations without trying anything else. A
+ * search stops with UNKNOWN when it runs out of nodes or time, or when
+ * its thread is interrupted.
+ * A Solver can be reused for many games, and makes no objects while searching.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class Solver
+{
+    /**
+     * Constants
+     */
+    public static final int WON = 0; //the game can be won
+    public static final int LOST = 1; //the game can't be won
+    public static final int UNKNOWN = 2; //the search stopped before it found out
+    public static final int MAX_DEPTH = 1000; //longest move sequence searched
+    private static final int TIME_CHECK = 4095; //nodes searched between looks at the clock
+
+    /**
+     * Instance variables
+     */
+    private final long nodeLimit; //stores the most nodes a search may visit
+    private final long timeLimit; //stores the most nanoseconds a search may take
+    private final PositionStore seen; //stores the positions already searched
+    private final boolean canonical; //stores whether positions are stored by GameState.canonicalHash
+    private final GameState state; //stores the position being searched
+    private final int[] moves; //stores the moves at each depth, Moves.MAX_MOVES per depth
+    private final int[] scores; //stores how promising each of those moves is
+    private final int[] path; //stores the moves from the start to the current position
+    private long nodes; //stores the number of nodes searched
+    private long deadline; //stores when the search must stop
+    private boolean stopped; //stores whether the node or time limit was reached
+    private boolean truncated; //stores whether a line of play was cut off at MAX_DEPTH
+    private int status; //stores the result of the last search
+    private int solutionLength; //stores the number of moves in the solution
+    private int mostFoundationCards; //stores the most cards on the foundations in any position searched
+    private int solutionStockPasses; //stores the number of times the solution turns the waste over
+    private long elapsed; //stores the nanoseconds the last search took
+
+    /**
+     * Constructor with parameters; initializes instance variables.
+     * @param initNodeLimit the most positions a search may visit
+     * @param timeLimitMillis the most milliseconds a search may take
+     * @param tableBits the transposition table holds 2 to the power tableBits positions
+     */
+    public Solver(long initNodeLimit, long timeLimitMillis, int tableBits)
+    {
+        this(initNodeLimit, timeLimitMillis, new TranspositionTable(tableBits), false);
+    }
+
+    /**
+     * Constructor with parameters; initializes instance variables.
+     * @param initNodeLimit the most positions a search may visit
+     * @param timeLimitMillis the most milliseconds a search may take
+     * @param initSeen the store of positions already searched, which is
+     *                 cleared at the start of each search
+     * @param initCanonical true to store positions by GameState.canonicalHash,
+     *                      so positions that differ only in the order of
+     *                      the piles or by swapping suits of a colour are
+     *                      searched once; false to use GameState.zobristHash
+     */
+    public Solver(long initNodeLimit, long timeLimitMillis, PositionStore initSeen, boolean initCanonical)
+    {
+        nodeLimit = initNodeLimit;
+        timeLimit = timeLimitMillis * 1000000L;
+        seen = initSeen;
+        canonical = initCanonical;
+        state = new GameState();
+        moves = new int[MAX_DEPTH * Moves.MAX_MOVES];
+        scores = new int[MAX_DEPTH * Moves.MAX_MOVES];
+        path = new int[MAX_DEPTH];
+    }
+
+    /**
+     * Solves the games given on the command line and prints how they went.
+     * @param args the number of random games to solve and, optionally,
+     *             the node limit for each game, a memory budget in
+     *             megabytes for an OffHeapPositionStore and a file to map
+     *             that store from; with -Dsolitaire.canonical=true the
+     *             store is searched by GameState.canonicalHash
+     * @postcondition the results and the search rate have been printed.
+     * @throws IOException if the store's file can't be mapped
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int games = args.length>0 ? Integer.parseInt(args[0]) : 100;
+        long limit = args.length>1 ? Long.parseLong(args[1]) : 1000000;
+        Solver solver;
+        if(args.length>2)
+        {
+            long budget = Long.parseLong(args[2]) << 20;
+            PositionStore store = args.length>3
+                ? new OffHeapPositionStore(budget, OffHeapPositionStore.REPLACE_DEEPEST, Paths.get(args[3]))
+                : new OffHeapPositionStore(budget, OffHeapPositionStore.REPLACE_DEEPEST);
+            solver = new Solver(limit, 10000, store, Boolean.getBoolean("solitaire.canonical"));
+        }
+        else
+        {
+            solver = new Solver(limit, 10000, 22);
+        }
+        int[] counts = new int[3];
+        long nodes = 0;
+        long time = 0;
+        for(int i = 0; i<games; i++)
+        {
+            counts[solver.solve(new Solitaire().getState())]++;
+            nodes += solver.getNodes();
+            time += solver.getElapsedNanos();
+        }
+        System.out.println("Won: " + counts[WON] + "  Lost: " + counts[LOST]
+                           + "  Unknown: " + counts[UNKNOWN]);
+        System.out.println("Nodes per second: " + (long)(nodes / (time / 1e9)));
+    }
+
+    /**
+     * Searches for a way to win a game.
+     * @param start the position to search from, which is not changed
+     * @postcondition the result, the solution if there is one and the
+     *                number of nodes searched are available from the getters.
+     * @return WON, LOST or UNKNOWN.
+     */
+    public int solve(GameState start)
+    {
+        long begin = System.nanoTime();
+        state.copyFrom(start);
+        seen.clear();
+        nodes = 0;
+        stopped = false;
+        truncated = false;
+        solutionLength = 0;
+        mostFoundationCards = start.foundationCount();
+        solutionStockPasses = 0;
+        deadline = begin + timeLimit;
+        if(search(0))
+        {
+            status = WON;
+            //a winning search leaves the state at the won position
+            solutionStockPasses = state.stockPasses() - start.stockPasses();
+        }
+        else if(stopped || truncated)
+        {
+            status = UNKNOWN;
+        }
+        else
+        {
+            status = LOST;
+        }
+        elapsed = System.nanoTime() - begin;
+        return status;
+    }
+
+    /**
+     * Picks the move that looks most promising in a position without
+     * searching: a safe move if there is one, otherwise the legal move
+     * that scores highest.
+     * @param position the position, which is not changed
+     * @return the move, or Moves.NONE if no move is worth trying.
+     */
+    public int bestMove(GameState position)
+    {
+        state.copyFrom(position);
+        if(playSafeMoves(0)>0)
+        {
+            return path[0];
+        }
+        if(orderMoves(0)>0)
+        {
+            return moves[0];
+        }
+        return Moves.NONE;
+    }
+
+    /**
+     * Gets the result of the last search.
+     * @return WON, LOST or UNKNOWN.
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Gets the moves that win the last game searched.
+     * @return the moves, in order, or an empty array if the game wasn't won.
+     */
+    public int[] getSolution()
+    {
+        int[] solution = new int[solutionLength];
+        System.arraycopy(path, 0, solution, 0, solutionLength);
+        return solution;
+    }
+
+    /**
+     * Gets the number of moves that win the last game searched.
+     * @return the length of the solution, or 0 if the game wasn't won.
+     */
+    public int getSolutionLength()
+    {
+        return solutionLength;
+    }
+
+    /**
+     * Gets the number of times the solution of the last search turns the
+     * waste over into the stock.
+     * @return the number of stock passes in the solution, or 0 if the game wasn't won.
+     */
+    public int getSolutionStockPasses()
+    {
+        return solutionStockPasses;
+    }
+
+    /**
+     * Gets how close the last search came to winning.
+     * @return the most cards on the foundations in any position searched,
+     *         52 if the game was won.
+     */
+    public int getMostFoundationCards()
+    {
+        return mostFoundationCards;
+    }
+
+    /**
+     * Gets the number of positions the last search visited.
+     * @return the number of nodes searched.
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Gets how long the last search took.
+     * @return the time taken in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsed;
+    }
+
+    /**
+     * Gets how fast the last search went.
+     * @return the number of nodes searched per second.
+     */
+    public long getNodesPerSecond()
+    {
+        if(elapsed==0)
+        {
+            return 0;
+        }
+        return (long)(nodes / (elapsed / 1e9));
+    }
+
+    /**
+     * Searches the current position.
+     * @param depth the number of moves made so far
+     * @postcondition if a win was found, path holds the moves that make it,
+     *                otherwise the state is as it was.
+     * @return true if a win was found, false otherwise.
+     */
+    private boolean search(int depth)
+    {
+        if(++nodes>nodeLimit || (nodes & TIME_CHECK)==0
+           && (System.nanoTime()>deadline || Thread.currentThread().isInterrupted()))
+        {
+            stopped = true;
+            return false;
+        }
+        int first = depth;
+        depth = playSafeMoves(depth);
+        mostFoundationCards = Math.max(mostFoundationCards, state.foundationCount());
+        if(state.isWon())
+        {
+            solutionLength = depth;
+            return true;
+        }
+        if(depth>=MAX_DEPTH - 1)
+        {
+            truncated = true;
+        }
+        else if(seen.add(canonical ? state.canonicalHash() : state.zobristHash(), depth))
+        {
+            int base = depth * Moves.MAX_MOVES;
+            int n = orderMoves(base);
+            for(int i = 0; i<n && !stopped; i++)
+            {
+                int move = moves[base + i];
+                state.apply(move);
+                path[depth] = move;
+                if(search(depth + 1))
+                {
+                    return true;
+                }
+                state.undo(move);
+            }
+        }
+        while(depth>first)
+        {
+            state.undo(path[--depth]);
+        }
+        return false;
+    }
+
+    /**
+     * Makes every move that can't make the game harder to win: turning
+     * over face down cards, and moving cards to the foundations that no
+     * other card could need to be put on (see GameState.isSafeForFoundation).
+     * @param depth the number of moves made so far
+     * @postcondition the moves have been made and added to the path.
+     * @return the number of moves made, including the new ones.
+     */
+    private int playSafeMoves(int depth)
+    {
+        boolean moved = true;
+        while(moved && depth<MAX_DEPTH - 1)
+        {
+            moved = false;
+            for(int p = 0; p<7 && !moved; p++)
+            {
+                if(state.pileSize(p)>0 && !state.isPileTopFaceUp(p))
+                {
+                    path[depth++] = Moves.make(Moves.TURN_OVER, p, 0, 0);
+                    moved = true;
+                }
+            }
+            if(!moved)
+            {
+                int move = state.safeFoundationMove();
+                if(move!=Moves.NONE)
+                {
+                    path[depth++] = move;
+                    moved = true;
+                }
+            }
+            if(moved)
+            {
+                state.apply(path[depth - 1]);
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Lists the legal moves worth trying, most promising first. Moving a
+     * whole pile onto an empty pile, and putting an ace on any empty
+     * foundation but the first, lead to positions already covered by
+     * other moves, so they are left out.
+     * @param base where the moves for this depth begin in the moves array
+     * @postcondition the moves are in order at the start of their part of the array.
+     * @return the number of moves.
+     */
+    private int orderMoves(int base)
+    {
+        int generated = state.generateMoves(moves, base);
+        int n = 0;
+        for(int i = 0; i<generated; i++)
+        {
+            int move = moves[base + i];
+            int score = score(move);
+            if(score<0)
+            {
+                continue;
+            }
+            //insertion sort, since there are only a few moves
+            int j = n;
+            while(j>0 && scores[base + j - 1]<score)
+            {
+                moves[base + j] = moves[base + j - 1];
+                scores[base + j] = scores[base + j - 1];
+                j--;
+            }
+            moves[base + j] = move;
+            scores[base + j] = score;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Scores how promising a move is.
+     * @param move a legal move
+     * @return a higher number for a more promising move, or -1 for a move
+     *         that isn't worth trying.
+     */
+    private int score(int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        switch(Moves.type(move))
+        {
+            case Moves.WASTE_TO_FOUNDATION:
+            case Moves.PILE_TO_FOUNDATION:
+                if(state.foundationTop(to)==GameState.NO_CARD)
+                {
+                    for(int f = 0; f<to; f++)
+                    {
+                        if(state.foundationTop(f)==GameState.NO_CARD)
+                        {
+                            return -1;
+                        }
+                    }
+                }
+                return 50;
+            case Moves.PILE_TO_PILE:
+                int down = state.pileFaceDown(from);
+                int left = state.pileSize(from) - Moves.count(move);
+                if(left>down)
+                {
+                    //moves only part of the face up cards, which is only
+                    //likely to help if the card it uncovers can go up
+                    if(Rules.contains(state.foundationsAccept(), state.pileCard(from, left - 1)))
+                    {
+                        return 40;
+                    }
+                    return 5;
+                }
+                if(down>0)
+                {
+                    return 60 + down; //uncovers a face down card
+                }
+                if(state.pileSize(to)==0)
+                {
+                    return -1;
+                }
+                return 20; //empties a pile for a king
+            case Moves.WASTE_TO_PILE:
+                return 30;
+            default:
+                return 10;
+        }
+    }
+}
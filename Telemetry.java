@@ -0,0 +1,159 @@
+import jdk.jfr.*;
+/**
+ * The Telemetry class holds the Metrics the game reports to and the JDK
+ * Flight Recorder events it emits, so that a slow response can be traced
+ * to the rules, to loading images or to painting. The events cost almost
+ * nothing unless a recording is running, for example one started with
+ * -XX:StartFlightRecording. Running with -Dsolitaire.metrics=true keeps
+ * histograms of every metric and prints them when the program exits.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public final class Telemetry
+{
+    //stores where measurements go
+    private static volatile Metrics metrics = Metrics.NONE;
+
+    static
+    {
+        if(Boolean.getBoolean("solitaire.metrics"))
+        {
+            final HistogramMetrics histograms = new HistogramMetrics();
+            metrics = histograms;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run()
+                {
+                    System.err.print(histograms);
+                }
+            });
+        }
+    }
+
+    /**
+     * Constructor; there are no Telemetry objects.
+     */
+    private Telemetry()
+    {
+    }
+
+    /**
+     * Gets where measurements go.
+     * @return the Metrics in use.
+     */
+    public static Metrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Sets where measurements go.
+     * @param newMetrics the Metrics to use, or null to throw measurements away
+     * @postcondition measurements are recorded in newMetrics.
+     */
+    public static void setMetrics(Metrics newMetrics)
+    {
+        metrics = newMetrics==null ? Metrics.NONE : newMetrics;
+    }
+
+    /**
+     * Records a measurement in the Metrics in use.
+     * @param metric one of the Metrics constants
+     * @param value the value measured
+     */
+    public static void record(int metric, long value)
+    {
+        metrics.record(metric, value);
+    }
+
+    /**
+     * The ClickEvent class is the handling of one mouse click.
+     */
+    @Name("solitaire.Click")
+    @Label("Click")
+    @Category("Solitaire")
+    public static class ClickEvent extends Event
+    {
+        @Label("Row")
+        int row;
+
+        @Label("Column")
+        int column;
+
+        @Label("Moves Made")
+        int moves;
+    }
+
+    /**
+     * The PaintEvent class is one call to paintComponent.
+     */
+    @Name("solitaire.Paint")
+    @Label("Paint")
+    @Category("Solitaire")
+    public static class PaintEvent extends Event
+    {
+        @Label("Clip Width")
+        int width;
+
+        @Label("Clip Height")
+        int height;
+    }
+
+    /**
+     * The MoveEvent class is one move checked against the rules and made.
+     */
+    @Name("solitaire.Move")
+    @Label("Move")
+    @Category("Solitaire")
+    @StackTrace(false)
+    public static class MoveEvent extends Event
+    {
+        @Label("Type")
+        int type;
+
+        @Label("From")
+        int from;
+
+        @Label("To")
+        int to;
+
+        @Label("Count")
+        int count;
+
+        @Label("Legal")
+        boolean legal;
+    }
+
+    /**
+     * The ImageLoadEvent class is the loading of the card images.
+     */
+    @Name("solitaire.ImageLoad")
+    @Label("Image Load")
+    @Category("Solitaire")
+    public static class ImageLoadEvent extends Event
+    {
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+    }
+
+    /**
+     * The GameEvent class is one headless game.
+     */
+    @Name("solitaire.Game")
+    @Label("Headless Game")
+    @Category("Solitaire")
+    @StackTrace(false)
+    public static class GameEvent extends Event
+    {
+        @Label("Deal Number")
+        long deal;
+
+        @Label("Moves")
+        int moves;
+
+        @Label("Won")
+        boolean won;
+    }
+}
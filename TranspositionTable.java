@@ -0,0 +1,91 @@
+import java.util.*;
+/**
+ * The TranspositionTable class remembers which positions a search has
+ * already seen, by their Zobrist hashes. It is a fixed-size open-addressed
+ * table of longs, so it never grows and never makes objects. When every
+ * nearby slot is taken an old position is forgotten, which only means it
+ * may be searched again. It is the PositionStore a Solver uses unless it
+ * is given another.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class TranspositionTable implements PositionStore
+{
+    /**
+     * Constants
+     */
+    private static final int PROBES = 8; //slots looked at before an old position is replaced
+
+    /**
+     * Instance variables
+     */
+    private final long[] keys; //stores the hashes, 0 meaning an empty slot
+    private final int mask; //stores the number of slots minus one
+    private long size; //stores the number of positions in the table
+
+    /**
+     * Constructor with parameters; creates an empty table.
+     * @param bits the table holds 2 to the power bits positions
+     */
+    public TranspositionTable(int bits)
+    {
+        keys = new long[1 << bits];
+        mask = keys.length - 1;
+    }
+
+    /**
+     * Adds a position to the table.
+     * @param hash the Zobrist hash of the position
+     * @param depth the number of moves from the start of the search, which
+     *              this table doesn't use
+     * @postcondition the position is in the table.
+     * @return true if the position wasn't already in the table, false if it was.
+     */
+    public boolean add(long hash, int depth)
+    {
+        if(hash==0)
+        {
+            hash = 1;
+        }
+        int start = (int)(hash ^ hash >>> 29) & mask;
+        for(int i = 0; i<PROBES; i++)
+        {
+            int slot = start + i & mask;
+            long key = keys[slot];
+            if(key==hash)
+            {
+                return false;
+            }
+            if(key==0)
+            {
+                keys[slot] = hash;
+                size++;
+                return true;
+            }
+        }
+        keys[start] = hash;
+        return true;
+    }
+
+    /**
+     * Gets the number of positions in the table.
+     * @return the number of positions in the table.
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes every position from the table.
+     * @postcondition the table is empty.
+     */
+    public void clear()
+    {
+        if(size>0)
+        {
+            Arrays.fill(keys, 0L);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * The UnwinnabilityProver class proves, without searching, that some
+ * positions can't be won. It works out an over-estimate of what could
+ * ever happen: which cards could ever be uncovered, which could ever be
+ * moved off the cards under them and which could ever reach a
+ * foundation. It starts from nothing and keeps adding cards until no
+ * more can be added. A card under other cards in a pile can be uncovered
+ * only once every card above it can be moved; a card can be moved if it
+ * can reach a foundation, if it is a king and a pile could be emptied, or
+ * if one of the two cards it can go on could be uncovered and isn't
+ * underneath it; a face up card can be moved with the cards on it, so it
+ * needn't be uncovered first. Drawing three at a time, only every third card of the
+ * stock can be reached until some stock card is played, so the others
+ * count only once one of those can move. If any card still can't reach a
+ * foundation, the position can't be won: for example a face down card
+ * under the card it must go on, or under both cards it could be moved
+ * onto. Every guess is on the side of the player, so a position proven
+ * unwinnable really is, but some unwinnable positions aren't proven.
+ * A proof takes a few microseconds and makes no objects.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class UnwinnabilityProver
+{
+    /**
+     * Constants
+     */
+    private static final int WARMUP = 50000; //proofs made before timing them
+
+    //stores, for each card, the cards it can be put on in a pile
+    private static final long[] PARENTS = new long[52];
+
+    static
+    {
+        for(int card = 0; card<52; card++)
+        {
+            for(int onto = 0; onto<52; onto++)
+            {
+                if(Rules.canStack(card, onto))
+                {
+                    PARENTS[card] |= 1L << onto;
+                }
+            }
+        }
+    }
+
+    /**
+     * Instance variables
+     */
+    private final long[] above; //stores, for each card in a pile, the cards that must move to uncover it
+    private final long[] below; //stores, for each card in a pile, the cards that stay underneath it
+    private long unreachable; //stores the cards that can't reach a foundation after the last proof
+
+    /**
+     * Constructor; initializes instance variables.
+     */
+    public UnwinnabilityProver()
+    {
+        above = new long[52];
+        below = new long[52];
+    }
+
+    /**
+     * Proves unwinnable the deals the Solver can't win, and prints how
+     * many it proves, how many it misses and how long proofs take.
+     * @param args the number of deals, optionally followed by the node
+     *             limit of the solver
+     * @postcondition the deals have been tried and the results printed.
+     */
+    public static void main(String[] args)
+    {
+        int deals = args.length>0 ? Integer.parseInt(args[0]) : 1000;
+        long nodeLimit = args.length>1 ? Long.parseLong(args[1]) : 200000;
+        UnwinnabilityProver prover = new UnwinnabilityProver();
+        Solver solver = new Solver(nodeLimit, 10000, 20);
+        GameState state = new GameState();
+        int[] counts = new int[3];
+        int proven = 0;
+        int provenLost = 0;
+        int wrong = 0;
+        long searchNanos = 0;
+        for(int i = 0; i<WARMUP; i++)
+        {
+            Deals.deal(i, state);
+            prover.isUnwinnable(state);
+        }
+        boolean[] proofs = new boolean[deals];
+        long proverNanos = 0;
+        for(int deal = 0; deal<deals; deal++)
+        {
+            Deals.deal(deal, state);
+            long begin = System.nanoTime();
+            proofs[deal] = prover.isUnwinnable(state);
+            proverNanos += System.nanoTime() - begin;
+        }
+        for(int deal = 0; deal<deals; deal++)
+        {
+            Deals.deal(deal, state);
+            long begin = System.nanoTime();
+            int status = solver.solve(state);
+            long end = System.nanoTime();
+            counts[status]++;
+            if(proofs[deal])
+            {
+                proven++;
+                searchNanos += end - begin;
+                if(status==Solver.LOST)
+                {
+                    provenLost++;
+                }
+                else if(status==Solver.WON)
+                {
+                    wrong++;
+                    System.out.println("Deal " + deal + " was proven unwinnable but the solver won it");
+                }
+            }
+        }
+        int lost = counts[Solver.LOST];
+        System.out.println("Deals: " + deals + "  Won: " + counts[Solver.WON] + "  Lost: " + lost
+                           + "  Unknown: " + counts[Solver.UNKNOWN]);
+        System.out.println("Proven unwinnable: " + proven + " (" + percent(proven, deals) + "% of deals: "
+                           + provenLost + " the solver lost, " + (proven - provenLost - wrong)
+                           + " it couldn't decide)");
+        System.out.println("Lost deals not proven: " + (lost - provenLost) + " (" + percent(lost - provenLost, lost)
+                           + "%)  won deals proven: " + wrong);
+        System.out.println("Average proof: " + proverNanos / Math.max(deals, 1) + " ns  search saved on proven deals: "
+                           + searchNanos / 1000000 + " ms");
+    }
+
+    /**
+     * Works out a percentage.
+     * @param part the part
+     * @param whole the whole
+     * @return part as a percentage of whole, to one decimal place, or 0 if whole is 0.
+     */
+    private static double percent(int part, int whole)
+    {
+        return whole==0 ? 0 : Math.round(1000.0 * part / whole) / 10.0;
+    }
+
+    /**
+     * Tries to prove that a position can't be won.
+     * @param state the position
+     * @return true if the position can't be won; false if it may be winnable.
+     */
+    public boolean isUnwinnable(GameState state)
+    {
+        long foundations = 0;
+        for(int f = 0; f<4; f++)
+        {
+            int top = state.foundationTop(f);
+            if(top!=GameState.NO_CARD)
+            {
+                foundations |= (1L << top + 1) - (1L << top - GameState.rank(top) + 1);
+            }
+        }
+
+        //the piles: which cards must move to uncover each card, and which
+        //cards of a pile are at the bottom, since moving one empties it
+        long bottoms = 0;
+        long faceUp = 0;
+        boolean emptyPile = false;
+        for(int p = 0; p<7; p++)
+        {
+            int size = state.pileSize(p);
+            int faceDown = state.pileFaceDown(p);
+            if(size==0)
+            {
+                emptyPile = true;
+                continue;
+            }
+            bottoms |= 1L << state.pileCard(p, 0);
+            long under = 0;
+            for(int i = 0; i<size; i++)
+            {
+                int card = state.pileCard(p, i);
+                //a face up card above the lowest one leaves the cards under
+                //it whenever a card under it is moved, taking it along
+                below[card] = i>faceDown ? 0 : under;
+                under |= 1L << card;
+                if(i>=faceDown)
+                {
+                    faceUp |= 1L << card;
+                }
+                //a face up card moves with the cards on it, so only the
+                //face down cards and the card moved to uncover each card count
+                long needed = 0;
+                for(int j = i + 1; j<size; j++)
+                {
+                    if(j<=faceDown || j==i + 1)
+                    {
+                        needed |= 1L << state.pileCard(p, j);
+                    }
+                }
+                above[card] = needed;
+            }
+        }
+        bottoms &= ~Rules.KINGS;
+
+        //the stock: drawing three, only every third card and the last one
+        //come to the top of the waste until a card is taken from it; with
+        //cards already in the waste, any card might
+        long stock = 0;
+        long drawable = 0;
+        int stockSize = state.stockSize();
+        for(int i = 0; i<stockSize; i++)
+        {
+            int card = state.stockCard(i);
+            stock |= 1L << card;
+            below[card] = 0;
+            if((stockSize - 1 - i) % 3==2 || i==0)
+            {
+                drawable |= 1L << card;
+            }
+        }
+        for(int i = 0; i<state.wasteSize(); i++)
+        {
+            int card = state.wasteCard(i);
+            stock |= 1L << card;
+            below[card] = 0;
+        }
+        boolean stockOpen = state.wasteSize()>0;
+
+        long uncovered = 0; //cards that could be on top of a pile or the waste
+        long movable = 0; //cards that could be moved off the cards under them
+        long piled = Rules.ALL_CARDS & ~stock & ~foundations; //cards in the piles
+        long stacked = 0; //cards from the stock that could be put in a pile
+        long found = foundations; //cards that could reach a foundation
+        while(true)
+        {
+            long newUncovered = uncovered | (stockOpen ? stock : drawable);
+            for(long cards = piled & ~newUncovered; cards!=0; cards &= cards - 1)
+            {
+                int card = Long.numberOfTrailingZeros(cards);
+                if((above[card] & ~movable)==0)
+                {
+                    newUncovered |= 1L << card;
+                }
+            }
+            long newFound = found;
+            for(long cards = newUncovered & ~found; cards!=0; cards &= cards - 1)
+            {
+                int card = Long.numberOfTrailingZeros(cards);
+                if(GameState.rank(card)==1 || Rules.contains(newFound, card - 1))
+                {
+                    newFound |= 1L << card;
+                }
+            }
+            //a card can only be put on a card in a pile, so a stock card is
+            //somewhere to go only if it could be put in a pile itself; a
+            //face up card in a pile can be moved with the cards on it
+            boolean emptiable = emptyPile || (movable & bottoms)!=0;
+            long targets = newUncovered & piled | stacked;
+            long newMovable = movable;
+            long newStacked = stacked;
+            for(long cards = (newUncovered | faceUp) & ~(movable & (stacked | piled)); cards!=0; cards &= cards - 1)
+            {
+                int card = Long.numberOfTrailingZeros(cards);
+                if((emptiable && GameState.rank(card)==13) || (PARENTS[card] & targets & ~below[card])!=0)
+                {
+                    newMovable |= 1L << card;
+                    newStacked |= 1L << card & stock;
+                }
+                else if(Rules.contains(newFound, card))
+                {
+                    newMovable |= 1L << card;
+                }
+            }
+            boolean newStockOpen = stockOpen || (newMovable & stock)!=0;
+            if(newUncovered==uncovered && newFound==found && newMovable==movable && newStacked==stacked
+               && newStockOpen==stockOpen)
+            {
+                break;
+            }
+            uncovered = newUncovered;
+            found = newFound;
+            movable = newMovable;
+            stacked = newStacked;
+            stockOpen = newStockOpen;
+        }
+        unreachable = Rules.ALL_CARDS & ~found;
+        return unreachable!=0;
+    }
+
+    /**
+     * Gets the cards the last proof found can never reach a foundation.
+     * @return the set of cards, empty if the position wasn't proven unwinnable.
+     */
+    public long getUnreachable()
+    {
+        return unreachable;
+    }
+}
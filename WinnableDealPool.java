@@ -0,0 +1,303 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+/**
+ * The WinnableDealPool class keeps a supply of deals the Solver has shown
+ * can be won, so that a winnable game can be started at once instead of
+ * solving deals until one is found. Background threads deal random games
+ * and solve them, adding the winnable ones to a lock-free queue until it
+ * holds the target number; taking a deal is a single poll of the queue,
+ * after which the threads find another. The pool is saved to a file when
+ * it is closed and loaded from it when it is made, so a new run starts full.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class WinnableDealPool
+{
+    /**
+     * Constants
+     */
+    private static final int MAGIC = 0x534F4C57; //"SOLW"
+    private static final int VERSION = 1;
+    private static final int TABLE_BITS = 18; //size of each producer's transposition table
+
+    /**
+     * The Deal class is a deal known to be winnable.
+     */
+    public static final class Deal
+    {
+        private final long number; //stores the deal number
+        private final int solutionLength; //stores the number of moves the solver needed
+
+        Deal(long initNumber, int initSolutionLength)
+        {
+            number = initNumber;
+            solutionLength = initSolutionLength;
+        }
+
+        /**
+         * Gets the deal number.
+         * @return the number to deal the game from.
+         */
+        public long getNumber()
+        {
+            return number;
+        }
+
+        /**
+         * Gets the length of the solution the solver found.
+         * @return the number of moves in the solution.
+         */
+        public int getSolutionLength()
+        {
+            return solutionLength;
+        }
+    }
+
+    /**
+     * Instance variables
+     */
+    private final ConcurrentLinkedQueue<Deal> deals; //stores the winnable deals
+    private final Semaphore space; //stores a permit for each deal the pool is short of
+    private final AtomicLong solved; //stores the number of deals the producers have solved
+    private final Path file; //stores where the pool is saved, or null
+    private final Thread[] producers; //stores the threads finding deals
+
+    /**
+     * Constructor with parameters; loads the saved pool, if there is one,
+     * and starts the threads that top it up.
+     * @param target the number of deals to keep
+     * @param threads the number of threads finding deals
+     * @param nodeLimit the most positions searched for one deal
+     * @param initFile where the pool is saved, or null not to save it
+     * @throws IOException if the saved pool can't be read
+     */
+    public WinnableDealPool(int target, int threads, final long nodeLimit, Path initFile) throws IOException
+    {
+        deals = new ConcurrentLinkedQueue<Deal>();
+        file = initFile;
+        solved = new AtomicLong();
+        int loaded = file==null ? 0 : load(file, target);
+        space = new Semaphore(target - loaded);
+        producers = new Thread[threads];
+        for(int i = 0; i<threads; i++)
+        {
+            producers[i] = new Thread("deal producer " + i) {
+                public void run()
+                {
+                    produce(new Solver(nodeLimit, 10000, TABLE_BITS));
+                }
+            };
+            producers[i].setDaemon(true);
+            producers[i].setPriority(Thread.MIN_PRIORITY);
+            producers[i].start();
+        }
+    }
+
+    /**
+     * Fills a pool and prints how fast winnable deals were found.
+     * @param args the number of deals to find, optionally followed by the
+     *             number of threads and the file to save them to
+     * @postcondition the pool has been filled, saved and the rate printed.
+     * @throws Exception if the pool can't be saved or the wait is interrupted
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int target = args.length>0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path file = args.length>2 ? Paths.get(args[2]) : defaultFile();
+        long begin = System.nanoTime();
+        WinnableDealPool pool = new WinnableDealPool(target, threads, 200000, file);
+        int start = pool.size();
+        while(pool.size()<target)
+        {
+            Thread.sleep(100);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println("Deals in pool: " + pool.size() + " (" + start + " loaded)  deals solved: "
+                           + pool.getSolved() + "  winnable deals found per second: "
+                           + (long)((pool.size() - start) / seconds));
+        Deal deal = pool.take();
+        System.out.println("Took deal " + deal.getNumber() + " (solution " + deal.getSolutionLength() + " moves)");
+        pool.close();
+    }
+
+    /**
+     * Gets the file the pool is saved to by default.
+     * @return the file winnable-deals in the .solitaire folder of the user's home.
+     */
+    public static Path defaultFile()
+    {
+        return Paths.get(System.getProperty("user.home"), ".solitaire", "winnable-deals");
+    }
+
+    /**
+     * Takes a winnable deal out of the pool.
+     * @postcondition a thread will find a deal to replace it.
+     * @return the deal, or null if the pool is empty.
+     */
+    public Deal take()
+    {
+        Deal deal = deals.poll();
+        if(deal!=null)
+        {
+            space.release();
+        }
+        return deal;
+    }
+
+    /**
+     * Gets the number of deals in the pool.
+     * @return the number of deals ready to take.
+     */
+    public int size()
+    {
+        return deals.size();
+    }
+
+    /**
+     * Gets the number of deals the threads have solved, winnable or not.
+     * @return the number of deals solved.
+     */
+    public long getSolved()
+    {
+        return solved.get();
+    }
+
+    /**
+     * Stops the threads and saves the pool.
+     * @postcondition no more deals are added, and the file holds the pool.
+     * @throws IOException if the file can't be written
+     */
+    public void close() throws IOException
+    {
+        for(Thread producer : producers)
+        {
+            producer.interrupt();
+        }
+        try
+        {
+            for(Thread producer : producers)
+            {
+                producer.join(1000);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if(file!=null)
+        {
+            save(file);
+        }
+    }
+
+    /**
+     * Writes the deals in the pool to a file, replacing it in one step.
+     * @param target the file
+     * @postcondition the file holds the deals.
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path target) throws IOException
+    {
+        Deal[] saved = deals.toArray(new Deal[0]);
+        ByteBuffer buffer = ByteBuffer.allocate(9 + saved.length * 12);
+        buffer.putInt(MAGIC).put((byte)VERSION).putInt(saved.length);
+        for(Deal deal : saved)
+        {
+            buffer.putLong(deal.number).putInt(deal.solutionLength);
+        }
+        Path folder = target.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Path temp = folder.resolve(target.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        try
+        {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Adds the deals saved in a file to the pool.
+     * @param source the file
+     * @param most the most deals to add
+     * @return the number of deals added, 0 if the file doesn't exist.
+     * @throws IOException if the file can't be read or isn't a saved pool
+     */
+    private int load(Path source, int most) throws IOException
+    {
+        if(!Files.exists(source))
+        {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(source));
+        if(buffer.remaining()<9 || buffer.getInt()!=MAGIC || buffer.get()!=VERSION)
+        {
+            throw new IOException("not a saved deal pool: " + source);
+        }
+        int count = buffer.getInt();
+        if(count<0)
+        {
+            throw new IOException("saved deal pool has " + count + " deals: " + source);
+        }
+        count = Math.min(count, most);
+        if(buffer.remaining()<count * 12)
+        {
+            throw new IOException("saved deal pool is cut short: " + source);
+        }
+        for(int i = 0; i<count; i++)
+        {
+            deals.add(new Deal(buffer.getLong(), buffer.getInt()));
+        }
+        return count;
+    }
+
+    /**
+     * Finds winnable deals for as long as the pool is open, waiting while
+     * it is full.
+     * @param solver the thread's solver
+     * @postcondition the thread has been interrupted.
+     */
+    private void produce(Solver solver)
+    {
+        GameState state = new GameState();
+        try
+        {
+            while(true)
+            {
+                space.acquire();
+                while(true)
+                {
+                    long number = Deals.randomDealNumber();
+                    Deals.deal(number, state);
+                    int status = solver.solve(state);
+                    solved.incrementAndGet();
+                    //a deal proven winnable is kept even if the pool is closing,
+                    //so that it is saved with the others
+                    if(status==Solver.WON)
+                    {
+                        deals.add(new Deal(number, solver.getSolutionLength()));
+                    }
+                    if(Thread.currentThread().isInterrupted())
+                    {
+                        return;
+                    }
+                    if(status==Solver.WON)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        catch(InterruptedException e)
+        {
+            //the pool was closed
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.function.*;
+/**
+ * The SolitaireWorkloads class makes the pieces of work the benchmarks in
+ * solitaire.benchmarks time: dealing, the rule checks, making and taking
+ * back moves, checking for a win, painting the table and playing whole
+ * games, with random legal moves or with the greedy HeadlessRunner. The game's classes are in the default package, which a class in
+ * a package can't name, so each workload is handed over as a LongSupplier
+ * that does one operation each time it is called and returns a value
+ * depending on the work, so the JIT can't throw the work away.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+public class SolitaireWorkloads
+{
+    /**
+     * Constants
+     */
+    private static final int POSITIONS = 256; //positions the rule and move workloads cycle through
+    private static final int MAX_RANDOM_MOVES = 1000; //stops a random game that is going nowhere
+
+    /**
+     * Makes a workload.
+     * @param name the name of a workload: deal, ruleChecks, generateMoves,
+     *             pileToPile, isWon, randomGame, greedyGame or paint
+     * @return the workload, ready to run.
+     * @throws IllegalArgumentException if there is no workload with that name
+     */
+    public static LongSupplier get(String name)
+    {
+        if(name.equals("deal"))
+        {
+            return deal();
+        }
+        else if(name.equals("ruleChecks"))
+        {
+            return ruleChecks(samplePositions(POSITIONS));
+        }
+        else if(name.equals("generateMoves"))
+        {
+            return generateMoves(samplePositions(POSITIONS));
+        }
+        else if(name.equals("pileToPile"))
+        {
+            return pileToPile(samplePositions(POSITIONS));
+        }
+        else if(name.equals("isWon"))
+        {
+            return isWon(new Solitaire(1));
+        }
+        else if(name.equals("randomGame"))
+        {
+            return randomGame();
+        }
+        else if(name.equals("greedyGame"))
+        {
+            return greedyGame();
+        }
+        else if(name.equals("paint"))
+        {
+            return paint(new GameView(new Solitaire(1), 0));
+        }
+        throw new IllegalArgumentException("no workload called " + name);
+    }
+
+    /**
+     * Makes the workload that deals numbered games in turn.
+     * @return the workload.
+     */
+    private static LongSupplier deal()
+    {
+        final GameState dealt = new GameState();
+        return new LongSupplier() {
+            long deal;
+            public long getAsLong()
+            {
+                Deals.deal(deal++, dealt);
+                return dealt.zobristHash();
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that checks whether a card can go on each pile
+     * and each foundation.
+     * @param positions the positions to check in
+     * @return the workload.
+     */
+    private static LongSupplier ruleChecks(final GameState[] positions)
+    {
+        return new LongSupplier() {
+            int next;
+            public long getAsLong()
+            {
+                GameState state = positions[next & POSITIONS - 1];
+                int card = next++ % 52;
+                long total = 0;
+                for(int p = 0; p<7; p++)
+                {
+                    if(state.canAddToPile(card, p))
+                    {
+                        total++;
+                    }
+                }
+                for(int f = 0; f<4; f++)
+                {
+                    if(state.canAddToFoundation(card, f))
+                    {
+                        total++;
+                    }
+                }
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that lists the legal moves of a position.
+     * @param positions the positions to list the moves of
+     * @return the workload.
+     */
+    private static LongSupplier generateMoves(final GameState[] positions)
+    {
+        final int[] moves = new int[Moves.MAX_MOVES];
+        return new LongSupplier() {
+            int next;
+            public long getAsLong()
+            {
+                return positions[next++ & POSITIONS - 1].generateMoves(moves);
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that makes and takes back every move from one
+     * pile to another in a position.
+     * @param positions the positions to move in
+     * @return the workload.
+     */
+    private static LongSupplier pileToPile(final GameState[] positions)
+    {
+        return new LongSupplier() {
+            int next;
+            public long getAsLong()
+            {
+                GameState state = positions[next++ & POSITIONS - 1];
+                long total = 0;
+                for(int from = 0; from<7; from++)
+                {
+                    for(int to = 0; to<7; to++)
+                    {
+                        int move = state.pileToPileMove(from, to);
+                        if(move!=Moves.NONE)
+                        {
+                            state.apply(move);
+                            total += state.zobristHash();
+                            state.undo(move);
+                        }
+                    }
+                }
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that checks whether a game has been won.
+     * @param game the game
+     * @return the workload.
+     */
+    private static LongSupplier isWon(final Solitaire game)
+    {
+        return new LongSupplier() {
+            public long getAsLong()
+            {
+                return game.celebrateTime() ? 1 : 0;
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that plays numbered deals in turn without a
+     * display, making a random legal move each turn until the game is won,
+     * no move is left or MAX_RANDOM_MOVES moves have been made. The moves
+     * are picked with a seeded SplittableRandom, so every run plays the
+     * same games.
+     * @return the workload.
+     */
+    private static LongSupplier randomGame()
+    {
+        final SplittableRandom random = new SplittableRandom(0x5EEDL);
+        final int[] moves = new int[Moves.MAX_MOVES];
+        return new LongSupplier() {
+            long deal;
+            public long getAsLong()
+            {
+                Solitaire game = new Solitaire(deal++);
+                int made = 0;
+                while(made<MAX_RANDOM_MOVES && !game.celebrateTime())
+                {
+                    int n = game.getLegalMoves(moves);
+                    if(n==0)
+                    {
+                        break;
+                    }
+                    game.play(moves[random.nextInt(n)]);
+                    made++;
+                }
+                return game.getFoundationCount() + made;
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that plays numbered deals in turn without a
+     * display, with the greedy strategy of HeadlessRunner.
+     * @return the workload.
+     */
+    private static LongSupplier greedyGame()
+    {
+        final HeadlessRunner runner = new HeadlessRunner();
+        return new LongSupplier() {
+            long deal;
+            public long getAsLong()
+            {
+                runner.play(new Solitaire(deal++));
+                return runner.getMoves();
+            }
+        };
+    }
+
+    /**
+     * Makes the workload that paints the whole table into an image, as
+     * Swing would paint the window. The display only draws the view, so
+     * no game thread or hint search runs while it is timed.
+     * @param view the view to paint
+     * @return the workload.
+     */
+    private static LongSupplier paint(GameView view)
+    {
+        final SolitaireDisplay display = new SolitaireDisplay(view);
+        Dimension size = display.getPreferredSize();
+        display.setSize(size);
+        final BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        return new LongSupplier() {
+            public long getAsLong()
+            {
+                Graphics g = image.getGraphics();
+                display.paintComponent(g);
+                g.dispose();
+                return image.getRGB(0, 0);
+            }
+        };
+    }
+
+    /**
+     * Makes positions from the middle of games, with cards spread over the
+     * piles, waste and foundations, by playing deals part way.
+     * @param count the number of positions
+     * @return the positions.
+     */
+    private static GameState[] samplePositions(int count)
+    {
+        GameState[] positions = new GameState[count];
+        HeadlessRunner runner = new HeadlessRunner();
+        for(int i = 0; i<count; i++)
+        {
+            Solitaire game = new Solitaire(i);
+            runner.play(game);
+            for(int undo = game.getMoveCount() / 2; undo>0; undo--)
+            {
+                game.undo();
+            }
+            positions[i] = game.getState();
+        }
+        return positions;
+    }
+}
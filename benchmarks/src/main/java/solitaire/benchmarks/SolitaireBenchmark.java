@@ -0,0 +1,73 @@
+package solitaire.benchmarks;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+/**
+ * The SolitaireBenchmark class times each of the workloads made by
+ * SolitaireWorkloads with JMH, one workload per fork so the JIT compiles
+ * each on its own. Its main method runs them with the GC profiler, so the
+ * bytes allocated and the garbage collections per operation are reported
+ * along with the times.
+ * @author Russell Yang
+ * @version 10/18/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SolitaireBenchmark
+{
+    /**
+     * Instance variables
+     */
+    @Param({ "deal", "ruleChecks", "generateMoves", "pileToPile", "isWon", "randomGame", "greedyGame", "paint" })
+    public String workload; //stores the name of the workload timed
+    private LongSupplier operation; //stores the workload
+
+    /**
+     * Runs the benchmarks with the GC profiler. Any of JMH's own options,
+     * such as "-p workload=paint" to run one workload, can be given too.
+     * @param args JMH command line options
+     * @postcondition the benchmarks have run and their results have been printed.
+     * @throws CommandLineOptionException if the options can't be understood
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        Options options = new OptionsBuilder()
+                          .parent(new CommandLineOptions(args))
+                          .include(SolitaireBenchmark.class.getName())
+                          .addProfiler(GCProfiler.class)
+                          .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Makes the workload before it is timed. SolitaireWorkloads is in the
+     * default package, so it is found by name.
+     * @postcondition the workload is ready to run.
+     * @throws ReflectiveOperationException if SolitaireWorkloads can't be found
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException
+    {
+        operation = (LongSupplier)Class.forName("SolitaireWorkloads").getMethod("get", String.class)
+                    .invoke(null, workload);
+    }
+
+    /**
+     * Runs one operation of the workload.
+     * @return a value that depends on the work done.
+     */
+    @Benchmark
+    public long run()
+    {
+        return operation.getAsLong();
+    }
+}